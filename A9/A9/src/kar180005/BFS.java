@@ -10,7 +10,6 @@ import kar180005.Graph.*;
 import java.io.File;
 import java.util.Queue;
 import java.util.LinkedList;
-import java.util.Scanner;
 
 public class BFS extends Graph.GraphAlgorithm<BFS.BFSVertex> {
 	public static final int INFINITY = Integer.MAX_VALUE;
@@ -76,10 +75,10 @@ public class BFS extends Graph.GraphAlgorithm<BFS.BFSVertex> {
 
 	public static void main(String[] args) throws Exception {
 		String string = "10 20   1 2 1   1 3 3   1 4 1   2 3 1   2 4 5   2 6 1   3 4 4   3 1 2   4 5 1   4 7 6   4 8 3   5 1 -7   5 2 2   5 8 9   6 5 4   7 9 -1   8 6 -1   9 3 9   9 5 5   10 7 6 1";
-		Scanner in;
+		MappedInput in;
 		// If there is a command line argument, use it as file from which
 		// input is read, otherwise use input from string.
-		in = args.length > 0 ? new Scanner(new File(args[0])) : new Scanner(string);
+		in = args.length > 0 ? new MappedInput(new File(args[0])) : new MappedInput(string.getBytes());
 		// Read graph from input
 		Graph g = Graph.readDirectedGraph(in);
 		int s = in.nextInt();
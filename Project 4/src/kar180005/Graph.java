@@ -376,6 +376,30 @@ public class Graph implements Iterable<Graph.Vertex> {
     }
     
     public static Graph readGraph(Scanner in, boolean directed) {
+	return readGraph(in::nextInt, directed);
+    }
+
+    // read a directed graph using the MappedInput interface
+    public static Graph readDirectedGraph(MappedInput in) {
+	return readGraph(in, true);
+    }
+
+    // read an undirected graph using the MappedInput interface
+    public static Graph readGraph(MappedInput in) {
+	return readGraph(in, false);
+    }
+
+    public static Graph readGraph(MappedInput in, boolean directed) {
+	return readGraph(in::nextInt, directed);
+    }
+
+    // Source of the ints of a graph, so every reader shares one parser
+    public interface IntSource {
+	int nextInt();
+    }
+
+    // read a graph from any source of ints
+    private static Graph readGraph(IntSource in, boolean directed) {
 	// read the graph related parameters
 	int n = in.nextInt(); // number of vertices in the graph
 	int m = in.nextInt(); // number of edges in the graph
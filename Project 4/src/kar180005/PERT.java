@@ -12,7 +12,6 @@ import kar180005.Graph.Factory;
 
 import java.io.File;
 import java.util.LinkedList;
-import java.util.Scanner;
 import java.lang.String;
 
 public class PERT extends GraphAlgorithm<PERT.PERTVertex> {
@@ -247,10 +246,10 @@ public class PERT extends GraphAlgorithm<PERT.PERTVertex> {
 
   public static void main(String[] args) throws Exception {
     String graph = "10 13   1 2 1   2 4 1   2 5 1   3 5 1   3 6 1   4 7 1   5 7 1   5 8 1   6 8 1   6 9 1   7 10 1   8 10 1   9 10 1      0 3 2 3 2 1 3 2 4 1";
-    Scanner in;
+    MappedInput in;
     // If there is a command line argument, use it as file from which
     // input is read, otherwise use input from string.
-    in = args.length > 0 ? new Scanner(new File(args[0])) : new Scanner(graph);
+    in = args.length > 0 ? new MappedInput(new File(args[0])) : new MappedInput(graph.getBytes());
     Graph g = Graph.readDirectedGraph(in);
     g.printGraph(false);
 
@@ -0,0 +1,421 @@
+// Kevin Roa
+
+package kar180005;
+
+import kar180005.Expression.Token;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An Expression lowered into a flat program that can be evaluated many times.
+ * Each instruction is one int: the opcode is in the low byte and the operand,
+ * if any, in the bits above it. Instructions are stored in postfix order and
+ * run on a long[] stack, so evaluating does not allocate anything.
+ *
+ * Variables x0..xN are read from a long[] given when evaluating, so an
+ * expression can be parsed and compiled once and then evaluated for many rows.
+ * evaluateBatch() runs the program over columns of values, one block of rows
+ * per instruction, and can split large batches across cores with fork/join.
+ *
+ * evaluate() reuses one stack owned by this object and is not thread safe,
+ * threads sharing a program should pass their own stack to evaluate(long[], long[]).
+ * evaluateBatch() is thread safe.
+ */
+public class CompiledExpression {
+    // Opcodes
+    static final int CONST = 0; // Push constants[operand]
+    static final int ADD = 1;
+    static final int SUB = 2;
+    static final int MUL = 3;
+    static final int DIV = 4;
+    static final int MOD = 5;
+    static final int POW = 6;
+    static final int VAR = 7; // Push vars[operand]
+
+    // Operator of each binary opcode
+    static final Expression.TokenType[] OPERATORS = { null, Expression.TokenType.PLUS, Expression.TokenType.MINUS,
+            Expression.TokenType.TIMES, Expression.TokenType.DIV, Expression.TokenType.MOD, Expression.TokenType.POWER };
+
+    static final int OP_BITS = 8; // Number of bits used by the opcode
+    static final int OP_MASK = (1 << OP_BITS) - 1;
+    static final int MAX_OPERAND = (1 << (32 - OP_BITS)) - 1; // Largest constant or variable index
+
+    static final int BLOCK_SIZE = 1024; // Rows evaluated together by evaluateBatch
+    static final int PARALLEL_THRESHOLD = 16 * BLOCK_SIZE; // Fewest rows given to one fork/join task
+
+    final int[] code; // Instructions in postfix order
+    final long[] constants; // Constant pool, indexed by the operand of CONST
+    final int maxStack; // Most values on the stack at any point of the program
+    final int numVariables; // One more than the highest variable index used
+    private final long[] stack; // Stack used by evaluate()
+
+    private CompiledExpression(int[] code, long[] constants, int maxStack, int numVariables) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStack = maxStack;
+        this.numVariables = numVariables;
+        this.stack = new long[maxStack];
+    }
+
+    // Compile an expression tree into a program
+    // @param tree A valid Expression tree
+    // @return A program that evaluates to the same value as the tree
+    // @see Expression
+    public static CompiledExpression compile(Expression tree) {
+        Builder b = new Builder();
+
+        // Visit the tree root, right, left and emit from the back,
+        // which leaves the instructions in postfix order
+        // Explicit stack so deep trees do not overflow the call stack
+        Deque<Expression> nodes = new ArrayDeque<>();
+        nodes.push(tree);
+        while (!nodes.isEmpty()) {
+            Expression node = nodes.pop();
+            b.emit(node.element);
+            if (node.left != null)
+                nodes.push(node.left);
+            if (node.right != null)
+                nodes.push(node.right);
+        }
+        b.reverse();
+
+        return b.build();
+    }
+
+    // Compile a postfix expression into a program
+    // @param postfix A list of tokens in postfix order, not modified
+    // @return A program that evaluates to the same value as the list
+    // @see Token
+    public static CompiledExpression compilePostfix(List<Token> postfix) {
+        Builder b = new Builder();
+        for (Token tok : postfix)
+            b.emit(tok);
+        return b.build();
+    }
+
+    // Evaluate a program without variables using the stack owned by this object
+    // @return The value of the expression
+    public long evaluate() {
+        return evaluate(Expression.NO_VARIABLES, stack);
+    }
+
+    // Evaluate the program using the stack owned by this object
+    // @param vars vars[i] is the value of xi
+    // @return The value of the expression
+    public long evaluate(long[] vars) {
+        return evaluate(vars, stack);
+    }
+
+    // Evaluate the program on the given stack
+    // @param vars vars[i] is the value of xi
+    // @param s A stack with at least maxStack() slots
+    // @return The value of the expression
+    public long evaluate(long[] vars, long[] s) {
+        final int[] code = this.code;
+        final long[] constants = this.constants;
+        int sp = 0;
+
+        for (int i = 0; i < code.length; i++) {
+            int ins = code[i];
+            switch (ins & OP_MASK) {
+                case CONST:
+                    s[sp++] = constants[ins >>> OP_BITS];
+                    break;
+                case VAR:
+                    s[sp++] = vars[ins >>> OP_BITS];
+                    break;
+                case ADD:
+                    sp--;
+                    s[sp - 1] = s[sp - 1] + s[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    s[sp - 1] = s[sp - 1] - s[sp];
+                    break;
+                case MUL:
+                    sp--;
+                    s[sp - 1] = s[sp - 1] * s[sp];
+                    break;
+                case DIV:
+                    sp--;
+                    s[sp - 1] = s[sp - 1] / s[sp];
+                    break;
+                case MOD:
+                    sp--;
+                    s[sp - 1] = s[sp - 1] % s[sp];
+                    break;
+                case POW:
+                    sp--;
+                    s[sp - 1] = Expression.power(s[sp - 1], s[sp]);
+                    break;
+            }
+        }
+        return s[0];
+    }
+
+    // Evaluate the program, checking every operation for overflow, division
+    // by zero and negative exponents instead of throwing or wrapping around
+    // @param vars vars[i] is the value of xi
+    // @return The value of the expression, or the first error hit
+    // @see Expression.Result
+    public Expression.Result evaluateChecked(long[] vars) {
+        final long[] s = new long[maxStack];
+        int sp = 0;
+
+        for (int i = 0; i < code.length; i++) {
+            int ins = code[i];
+            int op = ins & OP_MASK;
+            if (op == CONST)
+                s[sp++] = constants[ins >>> OP_BITS];
+            else if (op == VAR)
+                s[sp++] = vars[ins >>> OP_BITS];
+            else {
+                sp--;
+                Expression.TokenType type = OPERATORS[op];
+                Expression.Status status = Expression.checkOperation(type, s[sp - 1], s[sp]);
+                if (status != Expression.Status.OK)
+                    return new Expression.Result(status, 0);
+                s[sp - 1] = Expression.performOperation(type, s[sp - 1], s[sp]);
+            }
+        }
+        return new Expression.Result(Expression.Status.OK, s[0]);
+    }
+
+    // Evaluate the program for every row of a batch of columnar inputs
+    // @param columns columns[i][r] is the value of xi in row r
+    // @param out out[r] is set to the value of the expression for row r,
+    //            the number of rows is out.length
+    public void evaluateBatch(long[][] columns, long[] out) {
+        evaluateBatch(columns, out, false);
+    }
+
+    // Evaluate the program for every row of a batch of columnar inputs
+    // @param columns columns[i][r] is the value of xi in row r
+    // @param out out[r] is set to the value of the expression for row r,
+    //            the number of rows is out.length
+    // @param parallel If true, large batches are split across the common fork/join pool
+    public void evaluateBatch(long[][] columns, long[] out, boolean parallel) {
+        if (columns.length < numVariables)
+            throw new IllegalArgumentException("Expected " + numVariables + " columns, got " + columns.length);
+        for (int i = 0; i < numVariables; i++)
+            if (columns[i].length < out.length)
+                throw new IllegalArgumentException("Column x" + i + " has fewer than " + out.length + " rows");
+
+        if (parallel && out.length > PARALLEL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(new BatchTask(columns, out, 0, out.length));
+        else
+            evaluateRange(columns, out, 0, out.length);
+    }
+
+    // Evaluate rows [from, to) of a batch, BLOCK_SIZE rows at a time
+    // Each instruction runs over a whole block, so the inner loops are simple
+    // loops over arrays that the JIT can unroll and vectorize
+    void evaluateRange(long[][] columns, long[] out, int from, int to) {
+        final int[] code = this.code;
+        final long[] constants = this.constants;
+        long[][] s = new long[maxStack][BLOCK_SIZE];
+
+        for (int base = from; base < to; base += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, to - base);
+            int sp = 0;
+
+            for (int i = 0; i < code.length; i++) {
+                int ins = code[i];
+                int op = ins & OP_MASK;
+                if (op == CONST) {
+                    long c = constants[ins >>> OP_BITS];
+                    long[] a = s[sp++];
+                    for (int j = 0; j < n; j++)
+                        a[j] = c;
+                } else if (op == VAR) {
+                    System.arraycopy(columns[ins >>> OP_BITS], base, s[sp++], 0, n);
+                } else {
+                    sp--;
+                    long[] a = s[sp - 1], b = s[sp];
+                    switch (op) {
+                        case ADD:
+                            for (int j = 0; j < n; j++)
+                                a[j] += b[j];
+                            break;
+                        case SUB:
+                            for (int j = 0; j < n; j++)
+                                a[j] -= b[j];
+                            break;
+                        case MUL:
+                            for (int j = 0; j < n; j++)
+                                a[j] *= b[j];
+                            break;
+                        case DIV:
+                            for (int j = 0; j < n; j++)
+                                a[j] /= b[j];
+                            break;
+                        case MOD:
+                            for (int j = 0; j < n; j++)
+                                a[j] %= b[j];
+                            break;
+                        case POW:
+                            for (int j = 0; j < n; j++)
+                                a[j] = Expression.power(a[j], b[j]);
+                            break;
+                    }
+                }
+            }
+            System.arraycopy(s[0], 0, out, base, n);
+        }
+    }
+
+    // Get the number of stack slots needed to evaluate the program
+    public int maxStack() {
+        return maxStack;
+    }
+
+    // Get the number of variables the program reads, one more than the highest index
+    public int numVariables() {
+        return numVariables;
+    }
+
+    // Get the number of instructions in the program
+    public int length() {
+        return code.length;
+    }
+
+    // Used for debugging
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < code.length; i++) {
+            if (i > 0)
+                sb.append(", ");
+            int ins = code[i];
+            switch (ins & OP_MASK) {
+                case CONST:
+                    sb.append(constants[ins >>> OP_BITS]);
+                    break;
+                case VAR:
+                    sb.append('x').append(ins >>> OP_BITS);
+                    break;
+                default:
+                    sb.append("+-*/%^".charAt((ins & OP_MASK) - 1));
+            }
+        }
+        return sb.append("]").toString();
+    }
+
+    // Map an operator to its opcode
+    // @param op The operator
+    // @return The opcode for op
+    // @see TokenType
+    static int opcode(Expression.TokenType op) {
+        switch (op) {
+            case PLUS:
+                return ADD;
+            case MINUS:
+                return SUB;
+            case TIMES:
+                return MUL;
+            case DIV:
+                return DIV;
+            case MOD:
+                return MOD;
+            case POWER:
+                return POW;
+            default:
+                throw new IllegalArgumentException("Cannot compile token " + op);
+        }
+    }
+
+    /*
+     * Splits a batch in half until the ranges are small enough to evaluate
+     * directly. Ranges are split on block boundaries.
+     */
+    class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final long[][] columns;
+        final long[] out;
+        final int from, to;
+
+        BatchTask(long[][] columns, long[] out, int from, int to) {
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                evaluateRange(columns, out, from, to);
+                return;
+            }
+            int mid = from + ((to - from) / 2 / BLOCK_SIZE) * BLOCK_SIZE;
+            invokeAll(new BatchTask(columns, out, from, mid), new BatchTask(columns, out, mid, to));
+        }
+    }
+
+    /*
+     * Growable arrays that instructions and constants are emitted into
+     */
+    static class Builder {
+        int[] code = new int[16];
+        int length;
+        long[] constants = new long[8];
+        int nconst;
+        int nvars;
+
+        // Add the instruction for a token to the program
+        void emit(Token tok) {
+            if (tok.token == Expression.TokenType.VARIABLE) {
+                if (tok.index > MAX_OPERAND)
+                    throw new IllegalArgumentException("Variable index " + tok.index + " is too large");
+                add(VAR | (tok.index << OP_BITS));
+                nvars = Math.max(nvars, tok.index + 1);
+            } else if (tok.isOperand()) {
+                if (nconst > MAX_OPERAND)
+                    throw new IllegalArgumentException("Too many constants in expression");
+                if (nconst == constants.length)
+                    constants = Arrays.copyOf(constants, nconst * 2);
+                constants[nconst] = tok.getValue();
+                add(CONST | (nconst++ << OP_BITS));
+            } else
+                add(opcode(tok.token));
+        }
+
+        void add(int ins) {
+            if (length == code.length)
+                code = Arrays.copyOf(code, length * 2);
+            code[length++] = ins;
+        }
+
+        // Reverse the instructions emitted so far
+        void reverse() {
+            for (int i = 0, j = length - 1; i < j; i++, j--) {
+                int t = code[i];
+                code[i] = code[j];
+                code[j] = t;
+            }
+        }
+
+        // Finish the program, trimming the arrays and finding the stack depth
+        CompiledExpression build() {
+            int depth = 0, max = 0;
+            for (int i = 0; i < length; i++) {
+                int op = code[i] & OP_MASK;
+                if (op == CONST || op == VAR)
+                    depth++;
+                else
+                    depth--;
+                if (depth > max)
+                    max = depth;
+            }
+            if (depth != 1)
+                throw new IllegalArgumentException("Not a valid expression");
+
+            return new CompiledExpression(Arrays.copyOf(code, length),
+                    Arrays.copyOf(constants, nconst), max, nvars);
+        }
+    }
+}
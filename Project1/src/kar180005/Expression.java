@@ -5,29 +5,66 @@ package kar180005;
 
 import java.util.List;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.LinkedList;
-import java.util.Scanner;
-import java.io.FileNotFoundException;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Class to store a node of expression tree For each internal node, element
  * contains a binary operator List of operators: +|*|-|/|%|^ Other tokens: (|)
- * Each leaf node contains an operand (long integer)
+ * Each leaf node contains an operand (long integer) or a variable x0..xN
  */
 
 public class Expression {
     public enum TokenType {
         // NIL is a special token that can be used to mark bottom of stack
-        // + * - / % ^ ( ) 0-9
-        PLUS, TIMES, MINUS, DIV, MOD, POWER, OPEN, CLOSE, NIL, NUMBER
+        // + * - / % ^ ( ) 0-9 x0-xN
+        PLUS, TIMES, MINUS, DIV, MOD, POWER, OPEN, CLOSE, NIL, NUMBER, VARIABLE
     }
 
+    // What went wrong when evaluating in checked mode
+    public enum Status {
+        OK, OVERFLOW, DIVISION_BY_ZERO, NEGATIVE_EXPONENT
+    }
+
+    // Value of an expression evaluated in checked mode
+    // value is only meaningful if status is OK
+    public static class Result {
+        Status status;
+        long value;
+
+        Result(Status status, long value) {
+            this.status = status;
+            this.value = value;
+        }
+
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public String toString() {
+            return isOk() ? Long.toString(value) : status.toString();
+        }
+    }
+
+    // Used when evaluating expressions that have no variables
+    static final long[] NO_VARIABLES = new long[0];
+
     public static class Token {
         TokenType token;
         int priority; // for precedence of operator
         Long number; // used to store number of token = NUMBER
+        int index; // used to store index of token = VARIABLE, x3 has index 3
         String string;
 
         Token(TokenType op, int pri, String tok) {
@@ -44,15 +81,31 @@ public class Expression {
             string = tok;
         }
 
+        // Constructor for number that has already been parsed, e.g. by ExpressionLexer.
+        // String form is only built if the token is printed.
+        Token(long num) {
+            token = TokenType.NUMBER;
+            number = num;
+            string = null;
+        }
+
         boolean isOperand() {
-            return token == TokenType.NUMBER;
+            return token == TokenType.NUMBER || token == TokenType.VARIABLE;
         }
 
         public long getValue() {
-            return isOperand() ? number : 0;
+            return token == TokenType.NUMBER ? number : 0;
+        }
+
+        // Get the value of an operand given the values of the variables
+        // @param vars vars[i] is the value of xi
+        public long getValue(long[] vars) {
+            return token == TokenType.VARIABLE ? vars[index] : getValue();
         }
 
         public String toString() {
+            if (string == null)
+                string = token == TokenType.VARIABLE ? "x" + index : Long.toString(number);
             return string;
         }
     }
@@ -61,8 +114,9 @@ public class Expression {
     Expression left, right;
 
     // Create token corresponding to a string
-    // tok is "+" | "*" | "-" | "/" | "%" | "^" | "(" | ")"| NUMBER
+    // tok is "+" | "*" | "-" | "/" | "%" | "^" | "(" | ")"| NUMBER | VARIABLE
     // NUMBER is either "0" or "[-]?[1-9][0-9]*
+    // VARIABLE is "x[0-9]+"
     static Token getToken(String tok) {
         switch (tok) {
             // Priority depends on order of operations (PEMDAS)
@@ -87,8 +141,10 @@ public class Expression {
                 return new Token(TokenType.OPEN, 4, tok);
             case ")":
                 return new Token(TokenType.CLOSE, 4, tok);
-            // Number
+            // Number or variable
             default:
+                if (tok.charAt(0) == 'x')
+                    return variableToken(Integer.parseInt(tok.substring(1)));
                 return new Token(tok);
         }
     }
@@ -97,13 +153,13 @@ public class Expression {
         element = null;
     }
 
-    private Expression(Token oper, Expression left, Expression right) {
+    Expression(Token oper, Expression left, Expression right) {
         this.element = oper;
         this.left = left;
         this.right = right;
     }
 
-    private Expression(Token num) {
+    Expression(Token num) {
         this.element = num;
         this.left = null;
         this.right = null;
@@ -116,12 +172,53 @@ public class Expression {
     // @see Token
     // @see Expression
     public static Expression infixToExpression(List<Token> exp) {
-        // Convert to postfix notation because it is easier to work with
-        // Hopefully this is allowed because it is by far the simplist solution
-        // There is no need to worry about precedence or order of operations
-        List<Token> postfix = infixToPostfix(exp);
+        // Same precedence rules as infixToPostfix, but instead of adding an operator
+        // to an output list it is joined with the top two trees on the operand stack
+        // Both stacks can never hold more than exp.size() items
+        int n = exp.size();
+        Expression[] operands = new Expression[n];
+        Token[] operators = new Token[n];
+        int numOperands = 0, numOperators = 0;
+
+        for (Token tok : exp) {
+            // If operand then it is a leaf
+            if (tok.isOperand())
+                operands[numOperands++] = new Expression(tok);
+            // If ( then add it to operator stack
+            else if (tok.token == TokenType.OPEN)
+                operators[numOperators++] = tok;
+            // If ) then build trees until (
+            else if (tok.token == TokenType.CLOSE) {
+                while (operators[numOperators - 1].token != TokenType.OPEN)
+                    numOperands = combine(operands, numOperands, operators[--numOperators]);
+                // Remove ( from operator stack
+                numOperators--;
+            }
+            // If operator then build trees until an operator with lower precedence
+            else {
+                while (numOperators > 0 && operators[numOperators - 1].token != TokenType.OPEN
+                        && operators[numOperators - 1].priority >= tok.priority)
+                    numOperands = combine(operands, numOperands, operators[--numOperators]);
+                operators[numOperators++] = tok;
+            }
+        }
+        // Build trees with the remaining operators
+        while (numOperators > 0)
+            numOperands = combine(operands, numOperands, operators[--numOperators]);
+
+        return operands[0];
+    }
 
-        return postfixToExpression(postfix);
+    // Replace the top two trees of a stack with one tree joined by an operator
+    // @param operands Stack of trees
+    // @param size Number of trees on the stack
+    // @param op The operator joining the trees
+    // @return The new number of trees on the stack
+    private static int combine(Expression[] operands, int size, Token op) {
+        Expression right = operands[--size];
+        Expression left = operands[--size];
+        operands[size++] = new Expression(op, left, right);
+        return size;
     }
 
     // Given a list of tokens corresponding to a postfix expression,
@@ -131,27 +228,20 @@ public class Expression {
     // @see Token
     // @see Expression
     public static Expression postfixToExpression(List<Token> exp) {
-        // Dont need to worry about out of bounds because valid value always passed
-        Token tok = exp.get(exp.size() - 1);
-
-        // Base case, if operand then leaf
-        if (tok.isOperand())
-            return new Expression(tok);
-        else {
-            Expression left, right;
-
-            // Remove last element from token list
-            // Ref of exp is passed therefore need to get size of exp every time
-            exp.remove(exp.size() - 1);
-            // Get right side via recursion
-            right = postfixToExpression(exp);
-
-            exp.remove(exp.size() - 1);
-            // Get left side via recursion
-            left = postfixToExpression(exp);
-
-            return new Expression(tok, left, right);
+        // Stack of trees built so far, exp is not modified
+        Expression[] operands = new Expression[exp.size()];
+        int numOperands = 0;
+
+        for (Token tok : exp) {
+            // If operand then leaf
+            if (tok.isOperand())
+                operands[numOperands++] = new Expression(tok);
+            // If operator then join the top two trees
+            else
+                numOperands = combine(operands, numOperands, tok);
         }
+
+        return operands[numOperands - 1];
     }
 
     // Given a list of tokens corresponding to an infix expression,
@@ -161,7 +251,7 @@ public class Expression {
     // @see Token
     public static List<Token> infixToPostfix(List<Token> exp) {
         // Converted list
-        List<Token> output = new LinkedList<>();
+        List<Token> output = new ArrayList<>(exp.size());
         // Stack to temporarily hold operators
         Deque<Token> stack = new ArrayDeque<>();
 
@@ -207,12 +297,24 @@ public class Expression {
     // @return The result of evaluating the expression
     // @see token
     public static long evaluatePostfix(List<Token> exp) {
+        return evaluatePostfix(exp, NO_VARIABLES);
+    }
+
+    // Given a postfix expression and the values of its variables, evaluate it and
+    // return its value.
+    // @param exp A list of tokens in postfix order
+    // @param vars vars[i] is the value of xi
+    // @return The result of evaluating the expression
+    // @see token
+    public static long evaluatePostfix(List<Token> exp, long[] vars) {
         // Stack to temporarily hold tokens
         Deque<Token> stack = new ArrayDeque<>();
 
         exp.forEach(tok -> {
             if (tok.token == TokenType.NUMBER)
                 stack.push(tok);
+            else if (tok.token == TokenType.VARIABLE)
+                stack.push(longToToken(vars[tok.index]));
             else {
                 // Values to operate on
                 long val2 = stack.pop().number;
@@ -229,16 +331,57 @@ public class Expression {
     // @return The result of evaluating the tree
     // @see Expression
     public static long evaluateExpression(Expression tree) {
-        // Base case, if leaf then return the value
-        if (tree.left == null && tree.right == null)
-            return tree.element.getValue();
-        else {
-            // Recursively evaluate the left and right subtrees
-            long left = evaluateExpression(tree.left);
-            long right = evaluateExpression(tree.right);
-
-            return performOperation(tree.element.token, left, right);
+        return evaluateExpression(tree, NO_VARIABLES);
+    }
+
+    // Given an expression tree and the values of its variables, evaluate it and
+    // return its value.
+    // @param tree A valid Expression tree
+    // @param vars vars[i] is the value of xi
+    // @return The result of evaluating the tree
+    // @see Expression
+    public static long evaluateExpression(Expression tree, long[] vars) {
+        // Post order walk with explicit stacks so that deep trees do not
+        // overflow the call stack
+        // state[i] is 0 until the children of nodes[i] have been pushed
+        Expression[] nodes = new Expression[16];
+        byte[] state = new byte[16];
+        long[] values = new long[16];
+        int numNodes = 0, numValues = 0;
+
+        nodes[numNodes++] = tree;
+        while (numNodes > 0) {
+            Expression node = nodes[numNodes - 1];
+
+            // If leaf then push its value
+            if (node.left == null && node.right == null) {
+                numNodes--;
+                if (numValues == values.length)
+                    values = Arrays.copyOf(values, numValues * 2);
+                values[numValues++] = node.element.getValue(vars);
+            }
+            // If children are evaluated then replace their values with the result
+            else if (state[numNodes - 1] != 0) {
+                numNodes--;
+                long right = values[--numValues];
+                long left = values[--numValues];
+                values[numValues++] = performOperation(node.element.token, left, right);
+            }
+            // Otherwise evaluate the left then the right subtree first
+            else {
+                state[numNodes - 1] = 1;
+                if (numNodes + 2 > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    state = Arrays.copyOf(state, state.length * 2);
+                }
+                nodes[numNodes] = node.right;
+                state[numNodes++] = 0;
+                nodes[numNodes] = node.left;
+                state[numNodes++] = 0;
+            }
         }
+
+        return values[0];
     }
 
     // Perform an operation given the operator and two long values
@@ -261,13 +404,107 @@ public class Expression {
             case MOD:
                 return val1 % val2;
             case POWER:
-                return (long) Math.pow(val1, val2);
+                return power(val1, val2);
             // Default case for if given OPEN CLOSE NIL NUMBER
             default:
                 return 0;
         }
     }
 
+    // Raise base to the power exp using exponentiation by squaring.
+    // Overflow wraps around like the other operators instead of going through double.
+    // A negative exp gives the integer part of 1 / base^-exp, like "/" would,
+    // and 0 to a negative exp gives Long.MAX_VALUE as (long) Math.pow did.
+    // checkOperation reports any negative exp as NEGATIVE_EXPONENT.
+    // @param base The left side of the expression
+    // @param exp The right side of the expression
+    // @return The result of evaluating base ^ exp
+    public static long power(long base, long exp) {
+        if (exp < 0) {
+            if (base == 0)
+                return Long.MAX_VALUE;
+            if (base == 1)
+                return 1;
+            if (base == -1)
+                return (exp & 1) == 0 ? 1 : -1;
+            return 0;
+        }
+
+        long result = 1;
+        while (exp > 0) {
+            if ((exp & 1) != 0)
+                result *= base;
+            base *= base;
+            exp >>= 1;
+        }
+        return result;
+    }
+
+    // Check if performOperation would give the exact result of val1 op val2
+    // @param op The operator to be used in the evaluation
+    // @param val1 The left side of the expression
+    // @param val2 The right side of the expression
+    // @return OK if the result is exact, otherwise what would go wrong
+    // @see Status
+    public static Status checkOperation(TokenType op, long val1, long val2) {
+        long result;
+        switch (op) {
+            case PLUS:
+                result = val1 + val2;
+                // Overflow if both operands have a different sign than the result
+                return ((val1 ^ result) & (val2 ^ result)) < 0 ? Status.OVERFLOW : Status.OK;
+            case MINUS:
+                result = val1 - val2;
+                return ((val1 ^ val2) & (val1 ^ result)) < 0 ? Status.OVERFLOW : Status.OK;
+            case TIMES:
+                return multiplyOverflows(val1, val2) ? Status.OVERFLOW : Status.OK;
+            case DIV:
+                if (val2 == 0)
+                    return Status.DIVISION_BY_ZERO;
+                return val1 == Long.MIN_VALUE && val2 == -1 ? Status.OVERFLOW : Status.OK;
+            case MOD:
+                return val2 == 0 ? Status.DIVISION_BY_ZERO : Status.OK;
+            case POWER:
+                if (val2 < 0)
+                    return Status.NEGATIVE_EXPONENT;
+                // Same steps as power, checking each multiplication
+                result = 1;
+                while (val2 > 0) {
+                    if ((val2 & 1) != 0) {
+                        if (multiplyOverflows(result, val1))
+                            return Status.OVERFLOW;
+                        result *= val1;
+                    }
+                    val2 >>= 1;
+                    // Only square if the square is used
+                    if (val2 > 0) {
+                        if (multiplyOverflows(val1, val1))
+                            return Status.OVERFLOW;
+                        val1 *= val1;
+                    }
+                }
+                return Status.OK;
+            default:
+                return Status.OK;
+        }
+    }
+
+    // True if val1 * val2 does not fit in a long
+    private static boolean multiplyOverflows(long val1, long val2) {
+        // The high half of the 128 bit product must be the sign of the low half
+        return Math.multiplyHigh(val1, val2) != ((val1 * val2) >> 63);
+    }
+
+    // Given an expression tree and the values of its variables, evaluate it
+    // without letting anything go wrong silently.
+    // @param tree A valid Expression tree
+    // @param vars vars[i] is the value of xi
+    // @return The value of the tree, or the first error hit while evaluating it
+    // @see Result
+    public static Result evaluateExpressionChecked(Expression tree, long[] vars) {
+        return CompiledExpression.compile(tree).evaluateChecked(vars);
+    }
+
     // Create a new NUMBER token given a long value
     // @param val A number to be turned into a token
     // @return A new token object
@@ -276,42 +513,55 @@ public class Expression {
         return new Token(Long.toString(val));
     }
 
-    public static void main(String[] args) throws FileNotFoundException {
-        Scanner in;
+    // Create a new VARIABLE token given the index of the variable
+    // @param index The i of xi
+    // @return A new token object
+    // @see Token
+    public static Token variableToken(int index) {
+        if (index < 0)
+            throw new IllegalArgumentException("Negative variable index " + index);
+        Token tok = new Token(TokenType.VARIABLE, 0, null);
+        tok.index = index;
+        return tok;
+    }
+
+    public static void main(String[] args) throws IOException {
+        MappedInput in;
 
         // Read file passed on execution
         if (args.length > 0)
-            in = new Scanner(new File(args[0]));
+            in = new MappedInput(new File(args[0]));
         // If no file passed, read user input
         else
-            in = new Scanner(System.in);
+            in = new MappedInput(System.in);
 
         // Counter for # of expressions
         int count = 1;
 
-        // Loop through every line in input
-        while (in.hasNext()) {
-            // Hold infix notation of input operation
-            List<Token> infix = new LinkedList<>();
-
-            // Get the next line, remove all spaces from input
-            // Split the string at every operator, keep the operator in the array
-            // This instead of .split("") because numbers need to stay together
-            // Ex: "11 * (46-45) ^ 241- 11 " -> [ 11, *, (, 46, -, 45, ), ^, 241, -, 11 ]
-            String[] tokens = in.nextLine().replaceAll("\\s+", "").split("(?<=[-+*/%()^])|(?=[-+*/%()^])");
-            for (String tok : tokens)
-                infix.add(getToken(tok.trim()));
+        // Hold infix notation of input operation
+        List<Token> infix = new ArrayList<>();
+        // Characters of the current line, reused for every line
+        StringBuilder line = new StringBuilder();
+        ExpressionLexer lexer = new ExpressionLexer(line);
 
+        // Lines that repeat an earlier expression reuse its tree and value
+        ExpressionCache cache = new ExpressionCache();
+
+        // Loop through every line in input
+        // The lexer skips spaces and keeps numbers together
+        // Ex: "11 * (46-45) ^ 241- 11 " -> [ 11, *, (, 46, -, 45, ), ^, 241, -, 11 ]
+        while (in.nextLine(line)) {
+            lexer.reset(line);
+            lexer.nextLine(infix);
             if (infix.size() >= 1) {
                 System.out.println("Expression number: " + count);
                 System.out.println("Infix expression: " + infix);
 
-                // Convert infix to expression tree and postfix
-                Expression exp = infixToExpression(infix);
+                // Convert infix to postfix
                 List<Token> post = infixToPostfix(infix);
 
                 // Evaluate expression tree and postfix
-                long eval = evaluateExpression(exp);
+                long eval = cache.evaluate(infix);
                 long pval = evaluatePostfix(post);
 
                 System.out.println("Postfix expression: " + post);
@@ -320,6 +570,8 @@ public class Expression {
                 // increment expression count
                 count++;
             }
+            infix.clear();
+            line.setLength(0);
         }
     }
 }
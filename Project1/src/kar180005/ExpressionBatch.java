@@ -0,0 +1,195 @@
+// Kevin Roa
+
+package kar180005;
+
+import kar180005.Expression.Token;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batch mode for Expression. Input is read in chunks of whole lines, each
+ * chunk is tokenized and evaluated on a pool of worker threads, and results
+ * are written through one buffered writer in the original order. The output
+ * is the same as Expression.main, including the "Expression number: N" count.
+ *
+ * Workers only format the lines after the expression number, since the
+ * number depends on how many expressions came before in earlier chunks.
+ * The writer adds the numbers as it writes the chunks in order.
+ *
+ * Usage: java kar180005.ExpressionBatch [input|-] [threads] [output]
+ */
+public class ExpressionBatch {
+    static final int CHUNK_CHARS = 1 << 20; // Characters read per chunk, rounded down to a whole line
+    static final int OUTPUT_BUFFER = 1 << 16;
+
+    /*
+     * Output of one chunk of input
+     */
+    static class Chunk {
+        char[] text; // Output of every expression in the chunk, without the numbers
+        int[] starts; // starts[i] is where expression i begins in text, starts[count] is the end
+        int count; // Number of expressions in the chunk
+    }
+
+    // Evaluate every line of in and write the results to out in order
+    // @param in Expressions, one per line
+    // @param out Where the results are written, flushed but not closed
+    // @param threads Number of worker threads
+    public static void process(Reader in, Writer out, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // Chunks being worked on, in input order
+        // Bounded so a fast reader does not fill memory with pending chunks
+        Deque<Future<Chunk>> pending = new ArrayDeque<>();
+        int maxPending = 2 * threads;
+        int[] count = { 1 };
+
+        try {
+            char[] buf = new char[CHUNK_CHARS];
+            int len = 0;
+            boolean eof = false;
+
+            while (!eof) {
+                // Fill the buffer
+                while (len < buf.length) {
+                    int n = in.read(buf, len, buf.length - len);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    len += n;
+                }
+
+                // Cut after the last newline, the rest starts the next chunk
+                int cut = len;
+                if (!eof) {
+                    cut = lastNewline(buf, len) + 1;
+                    // No newline at all, the line is longer than the buffer
+                    if (cut == 0) {
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                        continue;
+                    }
+                }
+                if (cut > 0) {
+                    char[] chars = Arrays.copyOf(buf, cut);
+                    pending.add(pool.submit(() -> evaluateChunk(chars)));
+                }
+                System.arraycopy(buf, cut, buf, 0, len - cut);
+                len -= cut;
+
+                if (pending.size() >= maxPending)
+                    write(pending.remove(), out, count);
+            }
+
+            while (!pending.isEmpty())
+                write(pending.remove(), out, count);
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Tokenize and evaluate every line of a chunk, like Expression.main
+    // @param chars Whole lines of input
+    // @return The formatted results of the expressions in the chunk
+    static Chunk evaluateChunk(char[] chars) {
+        ExpressionLexer lexer = new ExpressionLexer(chars, 0, chars.length);
+        List<Token> infix = new ArrayList<>();
+        StringBuilder sb = new StringBuilder(chars.length * 4);
+        int[] starts = new int[64];
+        int count = 0;
+
+        while (lexer.nextLine(infix)) {
+            if (infix.size() >= 1) {
+                if (count + 1 >= starts.length)
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                starts[count++] = sb.length();
+
+                Expression exp = Expression.infixToExpression(infix);
+                List<Token> post = Expression.infixToPostfix(infix);
+                long eval = Expression.evaluateExpression(exp);
+                long pval = Expression.evaluatePostfix(post);
+
+                sb.append("Infix expression: ").append(infix).append('\n');
+                sb.append("Postfix expression: ").append(post).append('\n');
+                sb.append("Postfix eval: ").append(pval).append(" Exp eval: ").append(eval).append("\n\n");
+            }
+            infix.clear();
+        }
+
+        Chunk chunk = new Chunk();
+        starts[count] = sb.length();
+        chunk.starts = starts;
+        chunk.count = count;
+        chunk.text = new char[sb.length()];
+        sb.getChars(0, sb.length(), chunk.text, 0);
+        return chunk;
+    }
+
+    // Wait for a chunk and write it, numbering its expressions
+    // @param future The chunk to write
+    // @param out Where the results are written
+    // @param count count[0] is the number of the next expression
+    private static void write(Future<Chunk> future, Writer out, int[] count) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for results", e);
+        } catch (ExecutionException e) {
+            // Pass on errors from evaluating, e.g. division by zero
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+
+        for (int i = 0; i < chunk.count; i++) {
+            out.write("Expression number: ");
+            out.write(Integer.toString(count[0]++));
+            out.write('\n');
+            out.write(chunk.text, chunk.starts[i], chunk.starts[i + 1] - chunk.starts[i]);
+        }
+    }
+
+    // Find the last newline in buf[0..len)
+    private static int lastNewline(char[] buf, int len) {
+        for (int i = len - 1; i >= 0; i--)
+            if (buf[i] == '\n')
+                return i;
+        return -1;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Read file passed on execution, or user input if none or "-"
+        Reader in = args.length > 0 && !args[0].equals("-") ? new FileReader(args[0])
+                : new InputStreamReader(System.in);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Writer out = new BufferedWriter(
+                args.length > 2 ? new FileWriter(args[2]) : new OutputStreamWriter(System.out), OUTPUT_BUFFER);
+
+        try {
+            process(in, out, threads);
+        } finally {
+            in.close();
+            out.flush();
+            if (args.length > 2)
+                out.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+// Kevin Roa
+
+package kar180005;
+
+import kar180005.Expression.Token;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed expressions, keyed by their canonical form.
+ * The canonical form of an expression is its tokens separated by single
+ * spaces, so lines that differ only in whitespace share an entry.
+ * Each entry holds the expression tree, a compiled program of the optimized
+ * tree, and the value if the expression has no variables.
+ *
+ * The size of the cache is bounded by an estimate of the bytes used by its
+ * entries. When an insert goes over the bound, the least recently used
+ * entries are evicted. All methods are thread safe.
+ */
+public class ExpressionCache {
+    // Rough sizes used to estimate the memory used by an entry
+    static final int ENTRY_OVERHEAD = 160; // Map entry, cache entry, key and program objects
+    static final int NODE_BYTES = 48; // Expression node plus its token
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /*
+     * Cached forms of one expression
+     */
+    static class Entry {
+        final Expression tree; // Tree as built by infixToExpression
+        final CompiledExpression compiled; // Program of the optimized tree
+        final boolean hasValue; // True if the expression has no variables and evaluated without throwing
+        final long value; // Value of the expression if hasValue
+        final long bytes; // Estimated memory used by this entry
+
+        Entry(String key, Expression tree) {
+            this.tree = tree;
+            ExpressionOptimizer optimizer = new ExpressionOptimizer();
+            this.compiled = CompiledExpression.compile(optimizer.optimize(tree));
+
+            boolean ok = false;
+            long val = 0;
+            if (compiled.numVariables() == 0) {
+                try {
+                    val = compiled.evaluate();
+                    ok = true;
+                } catch (ArithmeticException e) {
+                    // Evaluate again when asked so the caller sees the exception
+                }
+            }
+            this.hasValue = ok;
+            this.value = val;
+            this.bytes = ENTRY_OVERHEAD + 2L * key.length() + (long) NODE_BYTES * optimizer.nodesBefore()
+                    + 4L * compiled.code.length + 8L * compiled.constants.length + 8L * compiled.maxStack;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> map; // In least to most recently used order
+    private final long maxBytes; // Bound on the estimated memory used
+    private long bytes; // Estimated memory used by all entries
+    private long hits, misses, evictions;
+
+    // Create a cache using at most about 64 MB
+    public ExpressionCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    // Create a cache
+    // @param maxBytes Bound on the estimated memory used by the entries
+    public ExpressionCache(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes must be positive");
+        this.maxBytes = maxBytes;
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Get the canonical form of an expression
+    // @param exp A list of tokens in infix order
+    // @return The tokens separated by single spaces
+    public static String canonical(List<Token> exp) {
+        StringBuilder sb = new StringBuilder(exp.size() * 4);
+        for (Token tok : exp) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(tok);
+        }
+        return sb.toString();
+    }
+
+    // Same as Expression.infixToExpression, but reuses the tree of an equal expression
+    // The returned tree is shared and must not be modified
+    // @param exp A list of tokens in infix order
+    // @return An Expression tree corresponding to the given list of tokens
+    public Expression infixToExpression(List<Token> exp) {
+        return get(exp).tree;
+    }
+
+    // Get the compiled program of an expression
+    // The returned program is shared, so use evaluate(long[], long[]) with
+    // a stack owned by the caller if other threads use the cache
+    // @param exp A list of tokens in infix order
+    // @return A program that evaluates to the same value as the expression
+    public CompiledExpression compile(List<Token> exp) {
+        return get(exp).compiled;
+    }
+
+    // Evaluate an expression that has no variables
+    // @param exp A list of tokens in infix order
+    // @return The value of the expression
+    public long evaluate(List<Token> exp) {
+        return evaluate(exp, Expression.NO_VARIABLES);
+    }
+
+    // Evaluate an expression
+    // @param exp A list of tokens in infix order
+    // @param vars vars[i] is the value of xi
+    // @return The value of the expression
+    public long evaluate(List<Token> exp, long[] vars) {
+        Entry e = get(exp);
+        if (e.hasValue)
+            return e.value;
+        return e.compiled.evaluate(vars, new long[e.compiled.maxStack()]);
+    }
+
+    // Find the entry of an expression, building it on a miss
+    Entry get(List<Token> exp) {
+        String key = canonical(exp);
+        synchronized (this) {
+            Entry e = map.get(key);
+            if (e != null) {
+                hits++;
+                return e;
+            }
+            misses++;
+        }
+
+        // Build outside the lock so other threads are not held up
+        Entry built = new Entry(key, Expression.infixToExpression(exp));
+
+        synchronized (this) {
+            // Another thread may have built the same entry meanwhile
+            Entry e = map.get(key);
+            if (e != null)
+                return e;
+
+            map.put(key, built);
+            bytes += built.bytes;
+            evict();
+            return built;
+        }
+    }
+
+    // Remove least recently used entries until under the bound
+    // The newest entry is kept even if it is larger than the bound on its own
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = map.entrySet().iterator();
+        while (bytes > maxBytes && map.size() > 1) {
+            Entry e = it.next().getValue();
+            it.remove();
+            bytes -= e.bytes;
+            evictions++;
+        }
+    }
+
+    // Remove every entry, counters are kept
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    // Get the estimated memory used by the entries
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized String toString() {
+        return "Entries: " + map.size() + ", " + (bytes / 1024) + " KB / " + (maxBytes / 1024) + " KB.\n" + "Hits: "
+                + hits + ", Misses: " + misses + ", Evictions: " + evictions;
+    }
+}
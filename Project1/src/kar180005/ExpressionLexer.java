@@ -0,0 +1,237 @@
+// Kevin Roa
+
+package kar180005;
+
+import kar180005.Expression.Token;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass lexer for Expression. Reads characters straight from a
+ * CharSequence, char[] or Reader and produces Tokens without using a regex or
+ * creating a substring per token. Numbers are parsed in place.
+ *
+ * Grammar (whitespace between tokens is ignored):
+ * tok is "+" | "*" | "-" | "/" | "%" | "^" | "(" | ")" | NUMBER | VARIABLE
+ * NUMBER is "[-]?[0-9]+", leading zeros are allowed and "-0" is 0, as with
+ * Long.parseLong
+ * VARIABLE is "x[0-9]+"
+ * A "-" at the start of a line or right after an operator or "(" is the sign
+ * of a NUMBER and must be directly followed by a digit. There is no unary
+ * minus for "(", variables or a NUMBER after a space.
+ */
+public class ExpressionLexer {
+    static final int BUFFER_SIZE = 8192;
+
+    // Operator tokens are never modified, so one instance of each is shared
+    // Indexed by the character of the operator
+    private static final Token[] OPERATORS = new Token[128];
+    static {
+        for (char c : "+*-/%^()".toCharArray())
+            OPERATORS[c] = Expression.getToken(String.valueOf(c));
+    }
+
+    private Reader reader; // Source of characters, null if reading from an array
+    private char[] buf; // Characters being lexed
+    private int pos, limit; // Next character to read and end of valid characters in buf
+    private boolean eof; // True once the reader has no more characters
+    private Token last; // Previous token on the current line, null at start of line
+
+    // Lex a single line of characters
+    public ExpressionLexer(CharSequence line) {
+        reset(line);
+    }
+
+    // Lex chars[off..off+len), the array is used directly and not copied
+    public ExpressionLexer(char[] chars, int off, int len) {
+        reset(chars, off, len);
+    }
+
+    // Lex everything that can be read from in, line by line
+    public ExpressionLexer(Reader in) {
+        reader = in;
+        buf = new char[BUFFER_SIZE];
+        pos = 0;
+        limit = 0;
+        eof = false;
+        last = null;
+    }
+
+    // Reuse this lexer for a new line of characters
+    // @param line The characters to lex
+    public void reset(CharSequence line) {
+        int len = line.length();
+        if (buf == null || buf.length < len || reader != null)
+            buf = new char[Math.max(len, 16)];
+
+        if (line instanceof String)
+            ((String) line).getChars(0, len, buf, 0);
+        else
+            for (int i = 0; i < len; i++)
+                buf[i] = line.charAt(i);
+
+        reader = null;
+        pos = 0;
+        limit = len;
+        eof = true;
+        last = null;
+    }
+
+    // Reuse this lexer for chars[off..off+len)
+    // @param chars The characters to lex, not copied
+    // @param off Index of the first character
+    // @param len Number of characters to lex
+    public void reset(char[] chars, int off, int len) {
+        reader = null;
+        buf = chars;
+        pos = off;
+        limit = off + len;
+        eof = true;
+        last = null;
+    }
+
+    // Get the next token of the current line.
+    // @return The next token, or null at the end of the line or input
+    public Token next() {
+        int c = skipSpaces();
+        if (c < 0 || c == '\n')
+            return null;
+
+        Token tok;
+        if (c >= '0' && c <= '9')
+            tok = new Token(readNumber(false));
+        else if (c == '-' && isUnaryPosition()) {
+            pos++;
+            int d = peek();
+            // Only a sign, an operator here would be missing its left operand
+            if (d < '0' || d > '9')
+                throw new IllegalArgumentException("Unary minus must precede a number");
+            tok = new Token(readNumber(true));
+        } else if (c == 'x') {
+            pos++;
+            tok = Expression.variableToken(readIndex());
+        } else if (c < OPERATORS.length && OPERATORS[c] != null) {
+            pos++;
+            tok = OPERATORS[c];
+        } else
+            throw new IllegalArgumentException("Unexpected character '" + (char) c + "' in expression");
+
+        last = tok;
+        return tok;
+    }
+
+    // Read all the tokens of the next line and add them to out.
+    // Blank lines add nothing to out.
+    // @param out The list the tokens are added to
+    // @return False if there was no more input to read, true otherwise
+    public boolean nextLine(List<Token> out) {
+        if (peek() < 0)
+            return false;
+
+        Token tok;
+        while ((tok = next()) != null)
+            out.add(tok);
+
+        // Move past the end of the line
+        if (peek() == '\n')
+            pos++;
+        last = null;
+        return true;
+    }
+
+    // Tokenize a single line
+    // @param line The characters of the expression
+    // @return A list of tokens in infix order
+    public static List<Token> tokenize(CharSequence line) {
+        List<Token> out = new ArrayList<>();
+        new ExpressionLexer(line).nextLine(out);
+        return out;
+    }
+
+    // A "-" is a sign if nothing, an operator, or "(" comes before it
+    private boolean isUnaryPosition() {
+        return last == null || (!last.isOperand() && last.token != Expression.TokenType.CLOSE);
+    }
+
+    // Parse the digits at pos as a long, same bounds as Long.parseLong
+    // Accumulated as a negative value so that Long.MIN_VALUE can be read
+    private long readNumber(boolean negative) {
+        long bound = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = bound / 10;
+        long result = 0;
+
+        int c = peek();
+        while (c >= '0' && c <= '9') {
+            int digit = c - '0';
+            if (result < multmin || result * 10 < bound + digit)
+                throw new NumberFormatException("Number out of range for long");
+            result = result * 10 - digit;
+            pos++;
+            c = peek();
+        }
+        return negative ? result : -result;
+    }
+
+    // Parse the digits at pos as the index of a variable
+    private int readIndex() {
+        int index = 0;
+        int c = peek();
+        if (c < '0' || c > '9')
+            throw new NumberFormatException("Variable is missing its index");
+
+        while (c >= '0' && c <= '9') {
+            if (index > (Integer.MAX_VALUE - (c - '0')) / 10)
+                throw new NumberFormatException("Variable index out of range");
+            index = index * 10 + (c - '0');
+            pos++;
+            c = peek();
+        }
+        return index;
+    }
+
+    // Skip spaces, tabs and carriage returns, stop at a newline
+    // @return The next character that is not skipped, or -1 at end of input
+    private int skipSpaces() {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+            pos++;
+            c = peek();
+        }
+        return c;
+    }
+
+    // Look at the next character without consuming it
+    // @return The next character, or -1 at end of input
+    private int peek() {
+        if (pos >= limit && !fill())
+            return -1;
+        return buf[pos];
+    }
+
+    // Read more characters from the reader into buf
+    // @return True if at least one character was read
+    private boolean fill() {
+        if (eof)
+            return false;
+        try {
+            int n;
+            do {
+                n = reader.read(buf, 0, buf.length);
+            } while (n == 0);
+
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+// Kevin Roa
+
+package kar180005;
+
+import kar180005.Expression.Token;
+import kar180005.Expression.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies Expression trees so they are cheaper to evaluate.
+ * Subtrees whose leaves are all numbers are folded into one number using
+ * performOperation, so the result is the same as evaluating them, including
+ * long overflow and integer / and %. Subtrees that would throw when evaluated,
+ * e.g. division by zero, are left in place so they still throw.
+ * Identities that keep the value of the other side are removed:
+ * x+0, 0+x, x-0, x*1, 1*x, x/1, x^1
+ * Identities that would drop a subtree, like x*0, are not applied because
+ * the dropped subtree could throw when evaluated.
+ *
+ * The input tree is not modified. Subtrees that do not change are shared
+ * between the input and the result.
+ */
+public class ExpressionOptimizer {
+    int nodesBefore; // Number of nodes in the last tree given to optimize
+    int nodesAfter; // Number of nodes in the last tree returned by optimize
+
+    // Return a smaller tree that evaluates to the same value as tree
+    // @param tree A valid Expression tree
+    // @return The simplified tree
+    // @see Expression
+    public Expression optimize(Expression tree) {
+        // Post order walk with explicit stacks, like evaluateExpression
+        // state[i] is 0 until the children of nodes[i] have been pushed
+        Expression[] nodes = new Expression[16];
+        byte[] state = new byte[16];
+        Expression[] results = new Expression[16];
+        int numNodes = 0, numResults = 0;
+        int count = 0;
+
+        nodes[numNodes++] = tree;
+        while (numNodes > 0) {
+            Expression node = nodes[numNodes - 1];
+
+            // Leaves can not be simplified
+            if (node.left == null && node.right == null) {
+                numNodes--;
+                count++;
+                if (numResults == results.length)
+                    results = Arrays.copyOf(results, numResults * 2);
+                results[numResults++] = node;
+            }
+            // Simplify the node once its children have been simplified
+            else if (state[numNodes - 1] != 0) {
+                numNodes--;
+                count++;
+                Expression right = results[--numResults];
+                Expression left = results[--numResults];
+                results[numResults++] = simplify(node, left, right);
+            }
+            // Otherwise simplify the left then the right subtree first
+            else {
+                state[numNodes - 1] = 1;
+                if (numNodes + 2 > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    state = Arrays.copyOf(state, state.length * 2);
+                }
+                nodes[numNodes] = node.right;
+                state[numNodes++] = 0;
+                nodes[numNodes] = node.left;
+                state[numNodes++] = 0;
+            }
+        }
+
+        nodesBefore = count;
+        nodesAfter = size(results[0]);
+        return results[0];
+    }
+
+    // Get the number of nodes in the last tree given to optimize
+    public int nodesBefore() {
+        return nodesBefore;
+    }
+
+    // Get the number of nodes in the last tree returned by optimize
+    public int nodesAfter() {
+        return nodesAfter;
+    }
+
+    // Used for debugging
+    public String toString() {
+        return "Nodes: " + nodesBefore + " -> " + nodesAfter;
+    }
+
+    // Count the nodes of a tree
+    // @param tree A valid Expression tree
+    // @return The number of nodes in tree
+    public static int size(Expression tree) {
+        Expression[] nodes = new Expression[16];
+        int numNodes = 0, count = 0;
+
+        nodes[numNodes++] = tree;
+        while (numNodes > 0) {
+            Expression node = nodes[--numNodes];
+            count++;
+            if (node.left != null) {
+                if (numNodes + 2 > nodes.length)
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                nodes[numNodes++] = node.left;
+                nodes[numNodes++] = node.right;
+            }
+        }
+        return count;
+    }
+
+    // Simplify one operator node given its already simplified children
+    // @param node The original node
+    // @param left The simplified left subtree
+    // @param right The simplified right subtree
+    // @return A tree equivalent to node
+    private static Expression simplify(Expression node, Expression left, Expression right) {
+        TokenType op = node.element.token;
+
+        // Fold two numbers into one
+        if (isNumber(left) && isNumber(right)) {
+            try {
+                long val = Expression.performOperation(op, left.element.getValue(), right.element.getValue());
+                return new Expression(new Token(val));
+            } catch (ArithmeticException e) {
+                // Division by zero, keep it so evaluating still throws
+            }
+        }
+
+        switch (op) {
+            case PLUS:
+                if (isNumber(right, 0))
+                    return left;
+                if (isNumber(left, 0))
+                    return right;
+                break;
+            case MINUS:
+                if (isNumber(right, 0))
+                    return left;
+                break;
+            case TIMES:
+                if (isNumber(right, 1))
+                    return left;
+                if (isNumber(left, 1))
+                    return right;
+                break;
+            case DIV:
+            case POWER:
+                if (isNumber(right, 1))
+                    return left;
+                break;
+            default:
+                break;
+        }
+
+        // Share the original node if nothing below it changed
+        if (left == node.left && right == node.right)
+            return node;
+        return new Expression(node.element, left, right);
+    }
+
+    private static boolean isNumber(Expression e) {
+        return e.element.token == TokenType.NUMBER;
+    }
+
+    private static boolean isNumber(Expression e, long val) {
+        return isNumber(e) && e.element.getValue() == val;
+    }
+}
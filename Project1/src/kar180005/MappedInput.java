@@ -0,0 +1,228 @@
+// Kevin Roa
+
+package kar180005;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Fast replacement for java.util.Scanner in the drivers.
+ * Reads whitespace separated tokens straight from bytes. Files are memory
+ * mapped with FileChannel.map, a window of up to 1 GB at a time, so large
+ * files are not copied through a heap buffer. Streams such as System.in are
+ * read through a byte[] buffer. Numbers are parsed from the bytes directly
+ * without creating a String, unlike Scanner which matches a regex per token.
+ *
+ * Input is treated as ASCII. Same exceptions as Scanner: NoSuchElementException
+ * at end of input and InputMismatchException if a token is not a number.
+ *
+ * Each project folder builds on its own, so each has a copy of this file.
+ * The copy in Project 4 is canonical: change it there, then copy it unchanged
+ * to A9, Project2 and Project3, and to Project1 with Project1's header and 4
+ * space indentation.
+ */
+public class MappedInput implements Closeable {
+    static final long WINDOW_SIZE = 1L << 30; // Most bytes of a file mapped at once
+    static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    FileChannel channel; // File being read, null if reading a stream or array
+    long fileSize;
+    long windowStart; // Position in the file of the first byte of buf
+    InputStream stream; // Stream being read, null if reading a file or array
+    byte[] streamBuffer;
+    ByteBuffer buf; // Bytes currently available to read
+
+    // Memory map a file
+    public MappedInput(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        fileSize = channel.size();
+        windowStart = 0;
+        buf = ByteBuffer.allocate(0);
+    }
+
+    // Read from a stream, e.g. System.in
+    public MappedInput(InputStream in) {
+        stream = in;
+        streamBuffer = new byte[STREAM_BUFFER_SIZE];
+        buf = ByteBuffer.allocate(0);
+    }
+
+    // Read from an array of bytes, e.g. the default input of a driver
+    public MappedInput(byte[] bytes) {
+        buf = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Is there another token in the input
+     *
+     * @return True if there is anything other than whitespace left
+     */
+    public boolean hasNext() {
+        return skipWhitespace() >= 0;
+    }
+
+    /**
+     * Get the next token as a String. Use nextInt or nextLong for numbers.
+     *
+     * @return The next whitespace separated token
+     */
+    public String next() {
+        if (skipWhitespace() < 0)
+            throw new NoSuchElementException();
+
+        StringBuilder sb = new StringBuilder();
+        int c = peek();
+        while (c > ' ') {
+            sb.append((char) c);
+            buf.get();
+            c = peek();
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the next token as an int
+     *
+     * @return The value of the next token
+     */
+    public int nextInt() {
+        long val = nextLong();
+        if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE)
+            throw new InputMismatchException("Value out of range for int: " + val);
+        return (int) val;
+    }
+
+    /**
+     * Get the next token as a long, parsed straight from the bytes
+     *
+     * @return The value of the next token
+     */
+    public long nextLong() {
+        int c = skipWhitespace();
+        if (c < 0)
+            throw new NoSuchElementException();
+
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            buf.get();
+            c = peek();
+        }
+        if (c < '0' || c > '9')
+            throw new InputMismatchException("Expected a number");
+
+        // Accumulate as a negative value so that Long.MIN_VALUE can be read
+        long bound = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = bound / 10;
+        long result = 0;
+        while (c >= '0' && c <= '9') {
+            int digit = c - '0';
+            if (result < multmin || result * 10 < bound + digit)
+                throw new InputMismatchException("Value out of range for long");
+            result = result * 10 - digit;
+            buf.get();
+            c = peek();
+        }
+        if (c > ' ')
+            throw new InputMismatchException("Expected a number");
+        return negative ? result : -result;
+    }
+
+    /**
+     * Get the rest of the current line, like Scanner.nextLine
+     *
+     * @return The characters up to the end of the line, without the line end
+     */
+    public String nextLine() {
+        StringBuilder sb = new StringBuilder();
+        if (!nextLine(sb))
+            throw new NoSuchElementException();
+        return sb.toString();
+    }
+
+    /**
+     * Append the rest of the current line to sb and move to the next line.
+     * Does not create a String, so sb can be reused for every line.
+     *
+     * @param sb Where the characters of the line are appended, without the line end
+     * @return False if there was no more input to read, true otherwise
+     */
+    public boolean nextLine(StringBuilder sb) {
+        int c = peek();
+        if (c < 0)
+            return false;
+
+        while (c >= 0 && c != '\n') {
+            if (c != '\r')
+                sb.append((char) c);
+            buf.get();
+            c = peek();
+        }
+        // Move past the end of the line
+        if (c == '\n')
+            buf.get();
+        return true;
+    }
+
+    public void close() throws IOException {
+        if (channel != null)
+            channel.close();
+        if (stream != null)
+            stream.close();
+    }
+
+    // Skip whitespace
+    // @return The next byte that is not whitespace, or -1 at end of input
+    private int skipWhitespace() {
+        int c = peek();
+        while (c >= 0 && c <= ' ') {
+            buf.get();
+            c = peek();
+        }
+        return c;
+    }
+
+    // Look at the next byte without consuming it
+    // @return The next byte, or -1 at end of input
+    private int peek() {
+        if (!buf.hasRemaining() && !fill())
+            return -1;
+        return buf.get(buf.position()) & 0xff;
+    }
+
+    // Map the next window of the file or read more of the stream
+    // @return True if at least one byte is available
+    private boolean fill() {
+        try {
+            if (channel != null) {
+                long pos = windowStart + buf.limit();
+                if (pos >= fileSize)
+                    return false;
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_SIZE, fileSize - pos));
+                windowStart = pos;
+                return true;
+            }
+            if (stream != null) {
+                int n;
+                do {
+                    n = stream.read(streamBuffer);
+                } while (n == 0);
+                if (n < 0)
+                    return false;
+                buf = ByteBuffer.wrap(streamBuffer, 0, n);
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/**
+ * Project 2, Thread safe SkipList
+ * Written by Kevin Roa
+ * Made for
+ *  Sridhar Alagar
+ *  SE 3345, Algorythms and Data Structures
+ */
+
+package kar180005;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SkipList that can be shared by many threads. Based on the lazy skip list of
+ * Herlihy and Shavit (The Art of Multiprocessor Programming, 14.3).
+ *
+ * add and remove lock only the predecessors of the Entry they change, so
+ * updates to different parts of the list run in parallel. contains, floor,
+ * ceiling, first, last and the iterator take no locks, and never wait for or
+ * retry after a writer: they step past Entries that are being added or
+ * removed. They are not strictly wait free, since a reader still walks past
+ * every Entry that writers link in ahead of it while it walks.
+ *
+ * An element is in the list once its Entry is fully linked and until its
+ * Entry is marked. remove marks an Entry before unlinking it, so readers that
+ * reach an Entry that is being removed skip it.
+ *
+ * Unlike SkipList there are no spans, so get, indexOf and rank are not
+ * supported. The iterator is weakly consistent: it never throws
+ * ConcurrentModificationException and may or may not see changes made after
+ * it was created.
+ */
+public class ConcurrentSkipList<T extends Comparable<? super T>> {
+    static final int PossibleLevels = 32; // Max levels Entry can occupy, enough for 2^32 Entries
+
+    // Reads and writes of next references, so that a thread sees Entries linked by another
+    private static final VarHandle NEXT = MethodHandles.arrayElementVarHandle(Entry[].class);
+    // Scratch arrays for the path of add and remove, one per thread so that writes do not allocate
+    private static final ThreadLocal<Path<?>> PATH = ThreadLocal.withInitial(Path::new);
+
+    final AtomicInteger maxLevel; // Most levels of any Entry ever added, searches start here
+    final LongAdder size; // Number of elements in the list
+    final Entry<T> head, tail; // Start and End of the list
+
+    /*
+     * Entry of the list
+     * Contains the value, the next Entry at each level, and a lock that is
+     * held while an Entry is linked after or unlinked from this one
+     */
+    static class Entry<E> {
+        final E element; // Value of Entry
+        final Entry<E>[] next; // Next Entry at each level, read and written through NEXT
+        final ReentrantLock lock = new ReentrantLock();
+        volatile boolean marked; // True once the Entry is being removed
+        volatile boolean fullyLinked; // True once the Entry is linked at every level
+
+        // Construct new Entry
+        @SuppressWarnings("unchecked")
+        public Entry(E x, int lev) {
+            element = x;
+            next = (Entry<E>[]) new Entry<?>[lev];
+        }
+
+        // Get the value of an Entry
+        public E getElement() {
+            return element;
+        }
+
+        // Get the level of an Entry
+        public int level() {
+            return next.length;
+        }
+
+        // Get the next Entry at a level
+        @SuppressWarnings("unchecked")
+        Entry<E> next(int i) {
+            return (Entry<E>) NEXT.getAcquire(next, i);
+        }
+
+        // Set the next Entry at a level, the new Entry is visible to readers after this
+        void setNext(int i, Entry<E> e) {
+            NEXT.setRelease(next, i, e);
+        }
+
+        // Is the Entry part of the list
+        boolean isLive() {
+            return fullyLinked && !marked;
+        }
+    }
+
+    /*
+     * Predecessors and successors found by findPred
+     * Cleared after each add or remove, so that a thread does not keep the
+     * Entries of a list reachable after the list is gone
+     */
+    static class Path<E> {
+        @SuppressWarnings("unchecked")
+        final Entry<E>[] pred = (Entry<E>[]) new Entry<?>[PossibleLevels];
+        @SuppressWarnings("unchecked")
+        final Entry<E>[] succ = (Entry<E>[]) new Entry<?>[PossibleLevels];
+
+        void clear() {
+            Arrays.fill(pred, null);
+            Arrays.fill(succ, null);
+        }
+    }
+
+    /**
+     * Constructor Initialize head and tail Entries to be start and end points of
+     * list
+     */
+    public ConcurrentSkipList() {
+        maxLevel = new AtomicInteger(1);
+        size = new LongAdder();
+
+        head = new Entry<T>(null, PossibleLevels);
+        tail = new Entry<T>(null, PossibleLevels);
+        for (int i = 0; i < PossibleLevels; i++)
+            head.setNext(i, tail);
+        head.fullyLinked = true;
+        tail.fullyLinked = true;
+    }
+
+    /**
+     * Add x to list. If x already exists, reject it. Returns true if new node is
+     * added to the list
+     *
+     * @param x Value to be added to the lists
+     * @return true if x added successfully, false if the list already contained x
+     */
+    public boolean add(T x) {
+        Path<T> path = path();
+        try {
+            return add(x, path.pred, path.succ);
+        } finally {
+            path.clear();
+        }
+    }
+
+    private boolean add(T x, Entry<T>[] pred, Entry<T>[] succ) {
+        int lvl = chooseLevel();
+        // Searches must start at or above the new Entry so that every level gets a pred
+        maxLevel.accumulateAndGet(lvl, Math::max);
+
+        while (true) {
+            int found = findPred(x, pred, succ);
+            if (found >= 0) {
+                Entry<T> entry = succ[found];
+                if (!entry.marked) {
+                    // x is being added by another thread, wait until it is in the list
+                    while (!entry.fullyLinked)
+                        Thread.onSpinWait();
+                    return false;
+                }
+                // x is being removed, try again once it is unlinked
+                continue;
+            }
+
+            // Lock the predecessors and check that nothing changed since the search
+            int locked = -1;
+            try {
+                boolean valid = true;
+                for (int i = 0; valid && i < lvl; i++) {
+                    pred[i].lock.lock();
+                    locked = i;
+                    valid = !pred[i].marked && !succ[i].marked && pred[i].next(i) == succ[i];
+                }
+                if (!valid)
+                    continue;
+
+                // Link the new Entry from the bottom up, it is in the list once fully linked
+                Entry<T> entry = new Entry<T>(x, lvl);
+                for (int i = 0; i < lvl; i++)
+                    entry.next[i] = succ[i];
+                for (int i = 0; i < lvl; i++)
+                    pred[i].setNext(i, entry);
+                entry.fullyLinked = true;
+                size.increment();
+                return true;
+            } finally {
+                unlock(pred, locked);
+            }
+        }
+    }
+
+    /**
+     * Find smallest element that is greater or equal to x
+     *
+     * @param x Value to compare against
+     * @return The value of the smallest entry greater than or equal to x, null if
+     *         there is none
+     */
+    public T ceiling(T x) {
+        Entry<T> p = findLess(x).next(0);
+        while (p != tail && !p.isLive())
+            p = p.next(0);
+        return p.getElement();
+    }
+
+    /**
+     * Test if the list contains x. Takes no locks and never retries.
+     *
+     * @param x Check if x is on the list
+     * @return True if x is on the list, false if not
+     */
+    public boolean contains(T x) {
+        Entry<T> p = head;
+        for (int i = maxLevel.get() - 1; i >= 0; i--) {
+            Entry<T> q = p.next(i);
+            int cmp;
+            while (q != tail && (cmp = q.element.compareTo(x)) <= 0) {
+                if (cmp == 0)
+                    return q.isLive();
+                p = q;
+                q = p.next(i);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the first element in the list
+     *
+     * @return The value of the first element in the list, null if empty
+     */
+    public T first() {
+        Entry<T> p = head.next(0);
+        while (p != tail && !p.isLive())
+            p = p.next(0);
+        return p.getElement();
+    }
+
+    /**
+     * Find largest element that is less than or equal to x
+     *
+     * @param x Value to compare against
+     * @return The value of the largest entry less than or equal to x, null if
+     *         there is none
+     */
+    public T floor(T x) {
+        Entry<T> p = findLastLive(x);
+        return p == head ? null : p.getElement();
+    }
+
+    /**
+     * Is the list empty or not
+     *
+     * @return True if list is empty, false if not
+     */
+    public boolean isEmpty() {
+        return first() == null;
+    }
+
+    /**
+     * Iterate through the elements of list in sorted order
+     *
+     * @return A new weakly consistent iterator for the list
+     */
+    public Iterator<T> iterator() {
+        return new SkipListIterator();
+    }
+
+    /**
+     * Get the last element in the list
+     *
+     * @return The value of the last element in the list, null if empty
+     */
+    public T last() {
+        Entry<T> p = findLastLive(null);
+        return p == head ? null : p.getElement();
+    }
+
+    /**
+     * Remove x from list. Removed element is returned. Return null if x not in list
+     *
+     * @param x Entry of element to remove from the list
+     * @return The value of the removed entry, null if entry wasn't on the list
+     */
+    public T remove(T x) {
+        Path<T> path = path();
+        try {
+            return remove(x, path.pred, path.succ);
+        } finally {
+            path.clear();
+        }
+    }
+
+    private T remove(T x, Entry<T>[] pred, Entry<T>[] succ) {
+        Entry<T> entry = null;
+        boolean marked = false; // True once this thread has marked entry
+        int lvl = 0;
+
+        while (true) {
+            int found = findPred(x, pred, succ);
+            if (!marked) {
+                // Only remove an Entry that is fully linked and found at its top level,
+                // otherwise another thread is still adding or already removing it
+                if (found < 0)
+                    return null;
+                entry = succ[found];
+                if (!entry.fullyLinked || entry.level() - 1 != found || entry.marked)
+                    return null;
+
+                entry.lock.lock();
+                if (entry.marked) {
+                    entry.lock.unlock();
+                    return null;
+                }
+                // The element is no longer in the list once marked
+                entry.marked = true;
+                marked = true;
+                lvl = entry.level();
+            }
+
+            // Lock the predecessors and check that they still link to entry
+            int locked = -1;
+            try {
+                boolean valid = true;
+                for (int i = 0; valid && i < lvl; i++) {
+                    pred[i].lock.lock();
+                    locked = i;
+                    valid = !pred[i].marked && pred[i].next(i) == entry;
+                }
+                if (!valid)
+                    continue;
+
+                // Unlink from the top down, entry keeps its next references so
+                // readers that are on it can move past it
+                for (int i = lvl - 1; i >= 0; i--)
+                    pred[i].setNext(i, entry.next(i));
+                entry.lock.unlock();
+                size.decrement();
+                return entry.getElement();
+            } finally {
+                unlock(pred, locked);
+            }
+        }
+    }
+
+    /**
+     * Get the size of the list. Exact if no other thread is changing the list.
+     *
+     * @return The number of elements in the list
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Find the path to x, the predecessor and successor of x at each level
+     *
+     * @param x    Value to find a path towards
+     * @param pred Filled with the last Entry less than x at each level
+     * @param succ Filled with the Entry after pred at each level
+     * @return The highest level where succ holds x, -1 if x was not found
+     */
+    private int findPred(T x, Entry<T>[] pred, Entry<T>[] succ) {
+        int found = -1;
+        Entry<T> p = head;
+        for (int i = maxLevel.get() - 1; i >= 0; i--) {
+            Entry<T> q = p.next(i);
+            while (q != tail && q.element.compareTo(x) < 0) {
+                p = q;
+                q = p.next(i);
+            }
+            if (found < 0 && q != tail && q.element.compareTo(x) == 0)
+                found = i;
+            pred[i] = p;
+            succ[i] = q;
+        }
+        return found;
+    }
+
+    /**
+     * Find the last live Entry that is at most x. Each level is walked from the
+     * last live Entry found so far, so level 0 visits every Entry after it and
+     * Entries that are being added or removed are stepped past, not waited on.
+     *
+     * @param x Value to compare against, null for no bound
+     * @return The last live Entry at most x, head if there is none
+     */
+    private Entry<T> findLastLive(T x) {
+        Entry<T> p = head;
+        for (int i = maxLevel.get() - 1; i >= 0; i--) {
+            for (Entry<T> q = p.next(i); q != tail && (x == null || q.element.compareTo(x) <= 0); q = q.next(i))
+                if (q.isLive())
+                    p = q;
+        }
+        return p;
+    }
+
+    /**
+     * Find the last Entry less than x at level 0 without recording the path
+     *
+     * @param x Value to compare against
+     * @return The last Entry less than x, head if there is none
+     */
+    private Entry<T> findLess(T x) {
+        Entry<T> p = head;
+        for (int i = maxLevel.get() - 1; i >= 0; i--) {
+            Entry<T> q = p.next(i);
+            while (q != tail && q.element.compareTo(x) < 0) {
+                p = q;
+                q = p.next(i);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Get the scratch Path of the calling thread
+     *
+     * @return The Path, empty
+     */
+    @SuppressWarnings("unchecked")
+    private Path<T> path() {
+        // A Path is only used by one call at a time and cleared after, so any list can use it
+        return (Path<T>) PATH.get();
+    }
+
+    /**
+     * Unlock the predecessors locked by add or remove
+     *
+     * @param pred   Predecessors at each level
+     * @param locked Highest level that was locked, -1 if none
+     */
+    private static <T> void unlock(Entry<T>[] pred, int locked) {
+        for (int i = 0; i <= locked; i++)
+            pred[i].lock.unlock();
+    }
+
+    /**
+     * Pick the level of a new Entry. Level k is chosen with chance 1/2^k
+     *
+     * @return A level between 1 and PossibleLevels
+     */
+    private static int chooseLevel() {
+        int lvl = 1 + Long.numberOfTrailingZeros(ThreadLocalRandom.current().nextLong());
+        return Math.min(lvl, PossibleLevels);
+    }
+
+    /*
+     * Weakly consistent iterator, skips Entries that are being added or removed
+     */
+    class SkipListIterator implements Iterator<T> {
+        Entry<T> current;
+
+        // Initialize iterator to the first element of the list
+        public SkipListIterator() {
+            current = skip(head.next(0));
+        }
+
+        /**
+         * Return true if the next element isn't the tail
+         *
+         * @return True if there is a next element after curent
+         */
+        public boolean hasNext() {
+            return current != tail;
+        }
+
+        /**
+         * Get the next element in the SkipList
+         *
+         * @return The value of the next element in the list
+         */
+        public T next() {
+            if (current == tail)
+                throw new NoSuchElementException();
+            T element = current.getElement();
+            current = skip(current.next(0));
+            return element;
+        }
+
+        // Move forward to the first Entry that is in the list
+        private Entry<T> skip(Entry<T> p) {
+            while (p != tail && !p.isLive())
+                p = p.next(0);
+            return p;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+/**
+ * Project 2, SkipList of long values
+ * Written by Kevin Roa
+ * Made for
+ *  Sridhar Alagar
+ *  SE 3345, Algorythms and Data Structures
+ */
+
+package kar180005;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * SkipList specialized for long values. Keys are stored unboxed and compared
+ * with the primitive operators instead of compareTo.
+ *
+ * There are no Entry objects. An Entry is an index into parallel arrays that
+ * hold its key, its level and where its links start in a shared pool of
+ * links. An Entry of level lvl owns 2 * lvl ints of the pool: its next Entry
+ * at each level followed by the span of each of those links. Entries and
+ * blocks of links that are removed are kept on free lists and reused.
+ *
+ * Head is Entry 0 and has every level. The end of the list is NIL rather
+ * than a tail Entry, and there are no prev links since last() can be found
+ * by a search.
+ *
+ * Per element this uses about 8 bytes for the key, 5 for the index of its
+ * links and its level, and 16 for an average of 2 levels of next and span.
+ * SkipList uses about 110 bytes plus a 16 byte Long.
+ */
+public class LongSkipList {
+    static final int MaxLevels = 32; // Levels of head, most levels any Entry can have
+    static final int NIL = -1; // Next of the last Entry at each level
+    static final int HEAD = 0; // Index of head
+    static final int InitialCapacity = 16;
+
+    long[] keys; // keys[e] is the value of Entry e
+    byte[] level; // level[e] is the number of levels of Entry e, 0 if e is free
+    int[] link; // link[e] is where the links of Entry e start, or the next free Entry if e is free
+    int[] links; // Pool of links, see the class comment
+    int entries; // Entries 0 to entries - 1 are in use or free
+    int linksUsed; // Ints of links handed out so far
+    int freeEntry; // First free Entry, NIL if none
+    int[] freeBlock; // freeBlock[lvl] is the first free block of 2 * lvl links, NIL if none
+
+    int maxLevel; // Most levels of any Entry in the list, searches start here
+    int levelShift; // Chance of an Entry having another level is 1 / 2^levelShift
+    SplittableRandom random; // Used to pick the level of new Entries
+    int[] pred; // Path to a given Entry, reused by every search
+    int[] rank; // rank[i] is the position of pred[i], head is at 0, reused by every search
+    int size; // Number of Entries in the list, not counting head
+
+    /**
+     * Constructor Initialize head to be the start of an empty list. Each Entry
+     * has another level with chance 1/2.
+     */
+    public LongSkipList() {
+        this(0.5);
+    }
+
+    /**
+     * Constructor Initialize head to be the start of an empty list
+     *
+     * @param p Chance of an Entry having another level, one of 1/2, 1/4, 1/8, ...
+     *          Smaller values use less memory but search a little more per level
+     */
+    public LongSkipList(double p) {
+        levelShift = (int) Math.round(-Math.log(p) / Math.log(2));
+        if (levelShift < 1 || levelShift > 8 || Math.scalb(1.0, -levelShift) != p)
+            throw new IllegalArgumentException("p must be 1/2, 1/4, ... 1/256");
+
+        keys = new long[InitialCapacity];
+        level = new byte[InitialCapacity];
+        link = new int[InitialCapacity];
+        links = new int[2 * MaxLevels + 4 * InitialCapacity];
+        freeBlock = new int[MaxLevels + 1];
+        Arrays.fill(freeBlock, NIL);
+        freeEntry = NIL;
+        entries = 0;
+        linksUsed = 0;
+
+        size = 0;
+        maxLevel = 1;
+        random = new SplittableRandom();
+        pred = new int[MaxLevels];
+        rank = new int[MaxLevels];
+
+        // Head links to the end of the list at every level
+        newEntry(0, MaxLevels);
+        for (int i = 0; i < MaxLevels; i++) {
+            links[link[HEAD] + i] = NIL;
+            links[link[HEAD] + MaxLevels + i] = 1;
+        }
+    }
+
+    /**
+     * Add x to list. If x already exists, reject it.
+     *
+     * @param x Value to be added to the lists
+     * @return true if x added successfully, false if the list already contained x
+     */
+    public boolean add(long x) {
+        findPred(x);
+        int q = links[link[pred[0]]];
+        if (q != NIL && keys[q] == x)
+            return false;
+
+        int lvl = chooseLevel();
+        int e = newEntry(x, lvl);
+
+        // Levels above maxLevel are not searched, so start them at head
+        for (; maxLevel < lvl; maxLevel++) {
+            pred[maxLevel] = HEAD;
+            rank[maxLevel] = 0;
+            links[link[HEAD] + MaxLevels + maxLevel] = size + 1;
+        }
+
+        // Insert after the predecessor at each level
+        // The new Entry is at position rank[0] + 1
+        int el = link[e];
+        for (int i = 0; i < lvl; i++) {
+            int pl = link[pred[i]];
+            int ps = pl + level[pred[i]] + i; // Index of the span of pred[i] at level i
+            links[el + i] = links[pl + i];
+            links[pl + i] = e;
+
+            // Split the span of the predecessor around the new Entry
+            links[el + lvl + i] = links[ps] - (rank[0] - rank[i]);
+            links[ps] = rank[0] - rank[i] + 1;
+        }
+        // Links above the new Entry now skip one more element
+        for (int i = lvl; i < maxLevel; i++)
+            links[link[pred[i]] + level[pred[i]] + i]++;
+
+        size++;
+        return true;
+    }
+
+    /**
+     * Find smallest element that is greater or equal to x
+     *
+     * @param x    Value to compare against
+     * @param none Value returned if every element is less than x
+     * @return The smallest element greater than or equal to x, none if there is
+     *         no such element
+     */
+    public long ceiling(long x, long none) {
+        int q = links[link[findLess(x)]];
+        return q == NIL ? none : keys[q];
+    }
+
+    /**
+     * Test if the list contains x
+     *
+     * @param x Check if x is on the list
+     * @return True if x is on the list, false if not
+     */
+    public boolean contains(long x) {
+        int q = links[link[findLess(x)]];
+        return q != NIL && keys[q] == x;
+    }
+
+    /**
+     * Get the first element in the list
+     *
+     * @return The value of the first element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public long first() {
+        int q = links[link[HEAD]];
+        if (q == NIL)
+            throw new NoSuchElementException();
+        return keys[q];
+    }
+
+    /**
+     * Find largest element that is less than or equal to x
+     *
+     * @param x    Value to compare against
+     * @param none Value returned if every element is greater than x
+     * @return The largest element less than or equal to x, none if there is no
+     *         such element
+     */
+    public long floor(long x, long none) {
+        int p = findLess(x);
+        int q = links[link[p]];
+        if (q != NIL && keys[q] == x)
+            return x;
+        return p == HEAD ? none : keys[p];
+    }
+
+    /**
+     * Return element at index n of list. First element is at index 0.
+     *
+     * @param n Index of the element to get
+     * @return The value of the element at index n
+     */
+    public long get(int n) {
+        // Throw exception if n is out of bounds
+        if (n > size - 1 || n < 0)
+            throw new IndexOutOfBoundsException();
+
+        // Go to position n + 1 of the list, head is at position 0
+        // Take the highest link that does not pass the position
+        int p = HEAD;
+        int pos = 0;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            int span;
+            while (pos + (span = links[link[p] + level[p] + i]) <= n + 1) {
+                pos += span;
+                p = links[link[p] + i];
+            }
+        }
+
+        return keys[p];
+    }
+
+    /**
+     * Is the list empty or not
+     *
+     * @return True if list is empty, false if not
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Iterate through the elements of list in sorted order
+     *
+     * @return A new iterator for the list
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new SkipListIterator();
+    }
+
+    /**
+     * Get the last element in the list
+     *
+     * @return The value of the last element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public long last() {
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        // Follow each level to its end
+        int p = HEAD;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            int q;
+            while ((q = links[link[p] + i]) != NIL)
+                p = q;
+        }
+        return keys[p];
+    }
+
+    /**
+     * Remove x from list
+     *
+     * @param x Value to remove from the list
+     * @return True if x was removed, false if x wasn't on the list
+     */
+    public boolean remove(long x) {
+        findPred(x);
+        int e = links[link[pred[0]]];
+        if (e == NIL || keys[e] != x)
+            return false;
+
+        // Unlink the Entry at each of its levels
+        int lvl = level[e];
+        int el = link[e];
+        for (int i = 0; i < lvl; i++) {
+            int pl = link[pred[i]];
+            links[pl + i] = links[el + i];
+            links[pl + level[pred[i]] + i] += links[el + lvl + i] - 1;
+        }
+        // Links above the Entry now skip one less element
+        for (int i = lvl; i < maxLevel; i++)
+            links[link[pred[i]] + level[pred[i]] + i]--;
+
+        // Stop searching levels that no longer have any Entry
+        while (maxLevel > 1 && links[link[HEAD] + maxLevel - 1] == NIL)
+            maxLevel--;
+
+        freeEntry(e);
+        size--;
+        return true;
+    }
+
+    /**
+     * Get the size of the list
+     *
+     * @return The number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the path to x, and the position of each Entry on the path.
+     * Fills pred and rank in place.
+     *
+     * @param x Value to find a path towards
+     */
+    private void findPred(long x) {
+        int p = HEAD;
+        int pos = 0;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            int q;
+            while ((q = links[link[p] + i]) != NIL && keys[q] < x) {
+                pos += links[link[p] + level[p] + i];
+                p = q;
+            }
+            pred[i] = p;
+            rank[i] = pos;
+        }
+    }
+
+    /**
+     * Find the last Entry less than x without recording the path
+     *
+     * @param x Value to compare against
+     * @return The last Entry less than x, HEAD if there is none
+     */
+    private int findLess(long x) {
+        int p = HEAD;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            int q;
+            while ((q = links[link[p] + i]) != NIL && keys[q] < x)
+                p = q;
+        }
+        return p;
+    }
+
+    /**
+     * Pick the level of a new Entry. Level k is chosen with chance
+     * (1-p) * p^(k-1), at most one more than the levels in use
+     *
+     * @return A level between 1 and MaxLevels
+     */
+    private int chooseLevel() {
+        // Each run of levelShift zero bits is one more level
+        int lvl = 1 + Long.numberOfTrailingZeros(random.nextLong()) / levelShift;
+        return Math.min(lvl, Math.min(maxLevel + 1, MaxLevels));
+    }
+
+    /**
+     * Take a free Entry and a block of links for it, growing the arrays if
+     * there are none
+     *
+     * @param x   Value of the Entry
+     * @param lvl Number of levels of the Entry
+     * @return Index of the new Entry, its links are not set
+     */
+    private int newEntry(long x, int lvl) {
+        int e = freeEntry;
+        if (e != NIL)
+            freeEntry = link[e];
+        else {
+            if (entries == keys.length) {
+                int capacity = entries + (entries >> 1);
+                keys = Arrays.copyOf(keys, capacity);
+                level = Arrays.copyOf(level, capacity);
+                link = Arrays.copyOf(link, capacity);
+            }
+            e = entries++;
+        }
+
+        int block = freeBlock[lvl];
+        if (block != NIL)
+            freeBlock[lvl] = links[block];
+        else {
+            if (linksUsed + 2 * lvl > links.length)
+                links = Arrays.copyOf(links, Math.max(linksUsed + 2 * lvl, links.length + (links.length >> 1)));
+            block = linksUsed;
+            linksUsed += 2 * lvl;
+        }
+
+        keys[e] = x;
+        level[e] = (byte) lvl;
+        link[e] = block;
+        return e;
+    }
+
+    /**
+     * Put an Entry and its block of links on the free lists
+     *
+     * @param e Index of the Entry, must already be unlinked
+     */
+    private void freeEntry(int e) {
+        int lvl = level[e];
+        links[link[e]] = freeBlock[lvl];
+        freeBlock[lvl] = link[e];
+
+        level[e] = 0;
+        link[e] = freeEntry;
+        freeEntry = e;
+    }
+
+    /*
+     * Iterator for LongSkipList class
+     */
+    class SkipListIterator implements PrimitiveIterator.OfLong {
+        int current;
+
+        // Initialize iterator to Entry after head
+        public SkipListIterator() {
+            current = links[link[HEAD]];
+        }
+
+        /**
+         * Return true if there is an Entry after the last one returned
+         *
+         * @return True if there is a next element
+         */
+        public boolean hasNext() {
+            return current != NIL;
+        }
+
+        /**
+         * Get the next element in the SkipList
+         *
+         * @return The value of the next element in the list
+         */
+        public long nextLong() {
+            if (current == NIL)
+                throw new NoSuchElementException();
+            long element = keys[current];
+            current = links[link[current]];
+            return element;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/**
+ * Project 2, SkipList of long values stored off the heap
+ * Written by Kevin Roa
+ * Made for
+ *  Sridhar Alagar
+ *  SE 3345, Algorythms and Data Structures
+ */
+
+package kar180005;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * SkipList of long values whose Entries are stored in ByteBuffers instead of
+ * Java objects, so a list of billions of keys puts no load on the garbage
+ * collector. The buffers are either direct buffers, or a file mapped with
+ * FileChannel.map so that the list is kept when the program ends and can be
+ * opened again without rebuilding it.
+ *
+ * Memory is an arena of chunks of 2^ChunkShift bytes, and an address is a
+ * long offset into the arena. An Entry never crosses the end of a chunk.
+ * Address 0 is the header, so 0 is also used as NIL, the end of each level.
+ *
+ * Header: magic, version, chunk shift, size, maxLevel, end of the used
+ * part of the arena, and the free lists. Head follows the header.
+ * Entry: key (8 bytes), level (4 bytes), 4 unused, then next at each level
+ * (8 bytes each). A free Entry keeps the next free Entry of the same level
+ * where its key was.
+ *
+ * Searches are the same as SkipList.findPred. Changes are written straight
+ * into the buffers, so the file is up to date once an operation returns;
+ * force writes it to the disk. The list is not safe to use from more than
+ * one thread.
+ */
+public class OffHeapSkipList implements Closeable {
+    static final int MaxLevels = 32; // Levels of head, most levels any Entry can have
+    static final long NIL = 0; // Next of the last Entry at each level
+    static final int ChunkShift = 26; // Chunks are 64 MB
+    static final long Magic = 0x5453494c50494b53L; // "SKIPLIST" read as little endian
+    static final int Version = 1;
+
+    // Header layout
+    static final int MagicOffset = 0;
+    static final int VersionOffset = 8;
+    static final int ShiftOffset = 12;
+    static final int SizeOffset = 16;
+    static final int MaxLevelOffset = 24;
+    static final int TopOffset = 32;
+    static final int FreeOffset = 40; // MaxLevels + 1 free lists, indexed by level
+    static final long HEAD = FreeOffset + 8 * (MaxLevels + 1);
+
+    // Entry layout
+    static final int KeyOffset = 0;
+    static final int LevelOffset = 8;
+    static final int NextOffset = 16;
+
+    FileChannel channel; // File the arena is mapped from, null if in memory
+    ByteBuffer[] chunks; // chunks[c] holds addresses c << ChunkShift up to (c + 1) << ChunkShift
+    int chunkShift; // Chunk size of this arena, from the header
+    long chunkMask;
+    SplittableRandom random; // Used to pick the level of new Entries
+    long[] pred; // Path to a given Entry, reused by every search
+
+    /**
+     * Constructor Create an empty list in direct buffers
+     */
+    public OffHeapSkipList() {
+        init();
+        create();
+    }
+
+    /**
+     * Constructor Open the list stored in a file, or create an empty one if the
+     * file does not exist or is empty
+     *
+     * @param file File holding the list
+     * @throws IOException if the file can not be mapped or does not hold a list
+     */
+    public OffHeapSkipList(File file) throws IOException {
+        init();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                create();
+                return;
+            }
+
+            // Check the header before mapping the rest of the file
+            ByteBuffer header = ByteBuffer.allocate(FreeOffset).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getLong(MagicOffset) != Magic || header.getInt(VersionOffset) != Version)
+                throw new IOException(file + " does not hold an OffHeapSkipList");
+            chunkShift = header.getInt(ShiftOffset);
+            chunkMask = (1L << chunkShift) - 1;
+
+            long top = header.getLong(TopOffset);
+            for (int c = 0; c <= (top - 1) >>> chunkShift; c++)
+                chunk(c);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add x to list. If x already exists, reject it.
+     *
+     * @param x Value to be added to the lists
+     * @return true if x added successfully, false if the list already contained x
+     */
+    public boolean add(long x) {
+        findPred(x);
+        long q = next(pred[0], 0);
+        if (q != NIL && key(q) == x)
+            return false;
+
+        int lvl = chooseLevel();
+        long entry = allocate(lvl);
+        putLong(entry + KeyOffset, x);
+        putInt(entry + LevelOffset, lvl);
+
+        // Levels above maxLevel are not searched, so start them at head
+        int maxLevel = maxLevel();
+        for (; maxLevel < lvl; maxLevel++)
+            pred[maxLevel] = HEAD;
+        putInt(MaxLevelOffset, maxLevel);
+
+        // Insert after the predecessor at each level
+        for (int i = 0; i < lvl; i++) {
+            setNext(entry, i, next(pred[i], i));
+            setNext(pred[i], i, entry);
+        }
+
+        putLong(SizeOffset, size() + 1);
+        return true;
+    }
+
+    /**
+     * Find smallest element that is greater or equal to x
+     *
+     * @param x    Value to compare against
+     * @param none Value returned if every element is less than x
+     * @return The smallest element greater than or equal to x, none if there is
+     *         no such element
+     */
+    public long ceiling(long x, long none) {
+        findPred(x);
+        long q = next(pred[0], 0);
+        return q == NIL ? none : key(q);
+    }
+
+    /**
+     * Write the changes to the file and close it. The list can not be used
+     * after.
+     */
+    public void close() throws IOException {
+        force();
+        if (channel != null)
+            channel.close();
+        chunks = null;
+    }
+
+    /**
+     * Test if the list contains x
+     *
+     * @param x Check if x is on the list
+     * @return True if x is on the list, false if not
+     */
+    public boolean contains(long x) {
+        findPred(x);
+        long q = next(pred[0], 0);
+        return q != NIL && key(q) == x;
+    }
+
+    /**
+     * Get the first element in the list
+     *
+     * @return The value of the first element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public long first() {
+        long q = next(HEAD, 0);
+        if (q == NIL)
+            throw new NoSuchElementException();
+        return key(q);
+    }
+
+    /**
+     * Find largest element that is less than or equal to x
+     *
+     * @param x    Value to compare against
+     * @param none Value returned if every element is greater than x
+     * @return The largest element less than or equal to x, none if there is no
+     *         such element
+     */
+    public long floor(long x, long none) {
+        findPred(x);
+        long q = next(pred[0], 0);
+        if (q != NIL && key(q) == x)
+            return x;
+        return pred[0] == HEAD ? none : key(pred[0]);
+    }
+
+    /**
+     * Write the changes to the file, if the list is in a file
+     */
+    public void force() {
+        if (channel != null)
+            for (ByteBuffer chunk : chunks)
+                if (chunk != null)
+                    ((MappedByteBuffer) chunk).force();
+    }
+
+    /**
+     * Is the list empty or not
+     *
+     * @return True if list is empty, false if not
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Iterate through the elements of list in sorted order
+     *
+     * @return A new iterator for the list
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new SkipListIterator();
+    }
+
+    /**
+     * Get the last element in the list
+     *
+     * @return The value of the last element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public long last() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        // Follow each level to its end
+        long p = HEAD;
+        for (int i = maxLevel() - 1; i >= 0; i--) {
+            long q;
+            while ((q = next(p, i)) != NIL)
+                p = q;
+        }
+        return key(p);
+    }
+
+    /**
+     * Remove x from list
+     *
+     * @param x Value to remove from the list
+     * @return True if x was removed, false if x wasn't on the list
+     */
+    public boolean remove(long x) {
+        findPred(x);
+        long entry = next(pred[0], 0);
+        if (entry == NIL || key(entry) != x)
+            return false;
+
+        // Unlink the Entry at each of its levels
+        int lvl = level(entry);
+        for (int i = 0; i < lvl; i++)
+            setNext(pred[i], i, next(entry, i));
+
+        // Stop searching levels that no longer have any Entry
+        int maxLevel = maxLevel();
+        while (maxLevel > 1 && next(HEAD, maxLevel - 1) == NIL)
+            maxLevel--;
+        putInt(MaxLevelOffset, maxLevel);
+
+        free(entry, lvl);
+        putLong(SizeOffset, size() - 1);
+        return true;
+    }
+
+    /**
+     * Get the size of the list
+     *
+     * @return The number of elements in the list
+     */
+    public long size() {
+        return getLong(SizeOffset);
+    }
+
+    /**
+     * Find the path to x. Fills pred in place.
+     *
+     * @param x Value to find a path towards
+     */
+    private void findPred(long x) {
+        long p = HEAD;
+        for (int i = maxLevel() - 1; i >= 0; i--) {
+            long q;
+            while ((q = next(p, i)) != NIL && key(q) < x)
+                p = q;
+            pred[i] = p;
+        }
+    }
+
+    /**
+     * Pick the level of a new Entry. Level k is chosen with chance 1/2^k, at
+     * most one more than the levels in use
+     *
+     * @return A level between 1 and MaxLevels
+     */
+    private int chooseLevel() {
+        int lvl = 1 + Long.numberOfTrailingZeros(random.nextLong());
+        return Math.min(lvl, Math.min(maxLevel() + 1, MaxLevels));
+    }
+
+    /**
+     * Set up the fields shared by every constructor
+     */
+    private void init() {
+        chunks = new ByteBuffer[0];
+        chunkShift = ChunkShift;
+        chunkMask = (1L << chunkShift) - 1;
+        random = new SplittableRandom();
+        pred = new long[MaxLevels];
+    }
+
+    /**
+     * Write the header and head of an empty list
+     */
+    private void create() {
+        chunk(0);
+        putLong(MagicOffset, Magic);
+        putInt(VersionOffset, Version);
+        putInt(ShiftOffset, chunkShift);
+        putLong(SizeOffset, 0);
+        putInt(MaxLevelOffset, 1);
+        putLong(TopOffset, HEAD + NextOffset + 8 * MaxLevels);
+        for (int lvl = 0; lvl <= MaxLevels; lvl++)
+            putLong(FreeOffset + 8 * lvl, NIL);
+
+        putInt(HEAD + LevelOffset, MaxLevels);
+        for (int i = 0; i < MaxLevels; i++)
+            setNext(HEAD, i, NIL);
+    }
+
+    /**
+     * Take a free Entry of a level, or a new one from the end of the arena
+     *
+     * @param lvl Number of levels of the Entry
+     * @return Address of the Entry, its fields are not set
+     */
+    private long allocate(int lvl) {
+        long freeList = FreeOffset + 8 * lvl;
+        long entry = getLong(freeList);
+        if (entry != NIL) {
+            putLong(freeList, getLong(entry + KeyOffset));
+            return entry;
+        }
+
+        // Start a new chunk if the Entry does not fit in the rest of this one
+        long bytes = NextOffset + 8L * lvl;
+        entry = getLong(TopOffset);
+        if ((entry & chunkMask) + bytes > chunkMask + 1)
+            entry = (entry | chunkMask) + 1;
+        chunk((int) (entry >>> chunkShift));
+        putLong(TopOffset, entry + bytes);
+        return entry;
+    }
+
+    /**
+     * Put an Entry on the free list of its level
+     *
+     * @param entry Address of the Entry, must already be unlinked
+     * @param lvl   Level of the Entry
+     */
+    private void free(long entry, int lvl) {
+        long freeList = FreeOffset + 8 * lvl;
+        putLong(entry + KeyOffset, getLong(freeList));
+        putLong(freeList, entry);
+    }
+
+    /**
+     * Get a chunk of the arena, mapping or allocating it if needed
+     *
+     * @param c Index of the chunk
+     * @return The buffer holding the chunk
+     */
+    private ByteBuffer chunk(int c) {
+        if (c >= chunks.length)
+            chunks = Arrays.copyOf(chunks, Math.max(c + 1, 2 * chunks.length));
+        if (chunks[c] == null) {
+            long chunkSize = chunkMask + 1;
+            try {
+                chunks[c] = channel == null ? ByteBuffer.allocateDirect((int) chunkSize)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, c * chunkSize, chunkSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks[c];
+    }
+
+    // Get the value of an Entry
+    private long key(long entry) {
+        return getLong(entry + KeyOffset);
+    }
+
+    // Get the level of an Entry
+    private int level(long entry) {
+        return getInt(entry + LevelOffset);
+    }
+
+    // Get the next Entry at a level
+    private long next(long entry, int i) {
+        return getLong(entry + NextOffset + 8 * i);
+    }
+
+    // Set the next Entry at a level
+    private void setNext(long entry, int i, long next) {
+        putLong(entry + NextOffset + 8 * i, next);
+    }
+
+    // Most levels of any Entry in the list, searches start here
+    private int maxLevel() {
+        return getInt(MaxLevelOffset);
+    }
+
+    private long getLong(long addr) {
+        return chunks[(int) (addr >>> chunkShift)].getLong((int) (addr & chunkMask));
+    }
+
+    private void putLong(long addr, long val) {
+        chunks[(int) (addr >>> chunkShift)].putLong((int) (addr & chunkMask), val);
+    }
+
+    private int getInt(long addr) {
+        return chunks[(int) (addr >>> chunkShift)].getInt((int) (addr & chunkMask));
+    }
+
+    private void putInt(long addr, int val) {
+        chunks[(int) (addr >>> chunkShift)].putInt((int) (addr & chunkMask), val);
+    }
+
+    /*
+     * Iterator for OffHeapSkipList class
+     */
+    class SkipListIterator implements PrimitiveIterator.OfLong {
+        long current;
+
+        // Initialize iterator to Entry after head
+        public SkipListIterator() {
+            current = OffHeapSkipList.this.next(HEAD, 0);
+        }
+
+        /**
+         * Return true if there is an Entry after the last one returned
+         *
+         * @return True if there is a next element
+         */
+        public boolean hasNext() {
+            return current != NIL;
+        }
+
+        /**
+         * Get the next element in the SkipList
+         *
+         * @return The value of the next element in the list
+         */
+        public long nextLong() {
+            if (current == NIL)
+                throw new NoSuchElementException();
+            long element = key(current);
+            current = OffHeapSkipList.this.next(current, 0);
+            return element;
+        }
+    }
+}
@@ -9,28 +9,47 @@
 
 package kar180005;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SkipList<T extends Comparable<? super T>> {
-    static final int PossibleLevels = 33; // Max levels Entry can occupy
-    Entry<T>[] pred = new Entry[PossibleLevels]; // Path to a given Entry
+    static final int MinLevels = 4; // Levels of head and tail when the list is created
+    int PossibleLevels; // Max levels Entry can occupy, grows with size
+    int maxLevel; // Most levels of any Entry in the list, searches start here
+    int levelShift; // Chance of an Entry having another level is 1 / 2^levelShift
+    SplittableRandom random; // Used to pick the level of new Entries
+    Entry<T>[] pred; // Path to the last Entry searched for, reused by every search
+    int[] rank; // rank[i] is the position of pred[i], head is at 0, reused by every search
     Entry<T> head, tail; // Start and End of the list
     int size; // Number of Entries in the list
+    int modCount; // Number of changes to the list, iterators use it to detect changes made while iterating
+    boolean fingerSearch; // Start searches from the last path instead of head
 
     /*
      * Generic entry for the list Contains references to: Value stored in the entry
      * Arrays for next and previous entries given a level
+     * Number of elements skipped by each next reference
      */
     static class Entry<E> {
         E element; // Value of Entry
         Entry<E>[] next, prev; // Arrays containing references to Entries at different levels
                                // Prev is hardly necessary but it was here so I implemented it
+        int[] span; // span[i] is the number of level 0 steps from this Entry to next[i]
 
         // Construct new Entry
         public Entry(E x, int lev) {
             element = x;
             next = new Entry[lev];
             prev = new Entry[lev];
+            span = new int[lev];
         }
 
         // Get the value of an Entry
@@ -46,10 +65,30 @@ public class SkipList<T extends Comparable<? super T>> {
 
     /**
      * Constructor Initialize head and tail Entries to be start and end points of
-     * list
+     * list. Each Entry has another level with chance 1/2.
      */
     public SkipList() {
+        this(0.5);
+    }
+
+    /**
+     * Constructor Initialize head and tail Entries to be start and end points of
+     * list
+     * 
+     * @param p Chance of an Entry having another level, one of 1/2, 1/4, 1/8, ...
+     *          Smaller values use less memory but search a little more per level
+     */
+    public SkipList(double p) {
+        levelShift = (int) Math.round(-Math.log(p) / Math.log(2));
+        if (levelShift < 1 || levelShift > 8 || Math.scalb(1.0, -levelShift) != p)
+            throw new IllegalArgumentException("p must be 1/2, 1/4, ... 1/256");
+
         size = 0;
+        maxLevel = 1;
+        PossibleLevels = MinLevels;
+        random = new SplittableRandom();
+        pred = new Entry[PossibleLevels];
+        rank = new int[PossibleLevels];
 
         // Create new Head and Tail Entries
         head = new Entry<T>(null, PossibleLevels);
@@ -59,7 +98,9 @@ public class SkipList<T extends Comparable<? super T>> {
         // At the start, all indexes point to Head and Tail
         for (int i = 0; i < PossibleLevels; i++) {
             head.next[i] = tail;
+            head.span[i] = 1;
             tail.prev[i] = head;
+            pred[i] = head;
         }
     }
 
@@ -72,26 +113,56 @@ public class SkipList<T extends Comparable<? super T>> {
      */
     public boolean add(T x) {
         // If list already contains x then return false, change nothing
-        if (contains(x))
+        // The same search gives the path used to insert x
+        findPred(x);
+        if (matches(pred[0].next[0], x))
             return false;
 
-        // Create a new Entry for the list
-        int lvl = (int) (Math.random() * PossibleLevels) + 1;
-        Entry<T> entry = new Entry<T>(x, lvl);
+        insert(x);
+        return true;
+    }
 
-        // Add the entry to the list
-        for (int i = 0; i < lvl; i++) {
-            // Insert new Entry after predecessor
-            entry.next[i] = pred[i].next[i];
-            pred[i].next[i] = entry;
+    /**
+     * Add every element of a sorted batch to the list. Elements already on the
+     * list are skipped. Elements greater than the last element of the list are
+     * linked at the end without searching, so loading an empty list is O(n).
+     * Other elements are found from the path of the element before them.
+     * 
+     * @param sorted Elements in ascending order, equal elements are added once
+     * @return True if any element was added
+     * @throws IllegalArgumentException if sorted is not in ascending order
+     */
+    public boolean addAll(Iterable<? extends T> sorted) {
+        int before = size;
+        startFinger();
+        boolean appending = false;
+        T last = null;
 
-            // Set prev node values
-            entry.prev[i] = pred[i];
-            entry.next[i].prev[i] = entry;
-        }
+        try {
+            for (T x : sorted) {
+                if (last != null && checkOrder(last, x) == 0)
+                    continue;
+                last = x;
 
-        size++;
-        return true;
+                // Once x is past the end of the list, so is every element after it
+                if (!appending && (size == 0 || tail.prev[0].element.compareTo(x) < 0)) {
+                    startAppend();
+                    appending = true;
+                }
+
+                if (appending)
+                    append(x);
+                else {
+                    advance(x);
+                    if (!matches(pred[0].next[0], x))
+                        insert(x);
+                }
+            }
+        } finally {
+            if (appending)
+                finishAppend();
+        }
+        return size != before;
     }
 
     /**
@@ -101,11 +172,9 @@ public class SkipList<T extends Comparable<? super T>> {
      * @return The value of the smallest entry greater than or equal to x
      */
     public T ceiling(T x) {
-        findPred(x);
-
         // Assuming x < max of list
         // No info was given on this check nor a return value therefore not implemented
-        return pred[0].next[0].getElement();
+        return findLess(x).next[0].getElement();
     }
 
     /**
@@ -115,11 +184,53 @@ public class SkipList<T extends Comparable<? super T>> {
      * @return True if x is on the list, false if not
      */
     public boolean contains(T x) {
-        findPred(x);
+        return matches(findLess(x).next[0], x);
+    }
 
-        if (pred[0].next[0].equals(tail))
-            return false;
-        return pred[0].next[0].element.compareTo(x) == 0;
+    /**
+     * Test if the list contains every element of a sorted batch. Each element is
+     * found from the path of the element before it.
+     * 
+     * @param sorted Elements in ascending order
+     * @return True if every element is on the list
+     * @throws IllegalArgumentException if sorted is not in ascending order
+     */
+    public boolean containsAll(Iterable<? extends T> sorted) {
+        startFinger();
+        T last = null;
+        for (T x : sorted) {
+            if (last != null)
+                checkOrder(last, x);
+            last = x;
+
+            advance(x);
+            if (!matches(pred[0].next[0], x))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Count the elements x with lo <= x < hi. Takes two searches, O(log n).
+     * 
+     * @param lo Lower bound, inclusive
+     * @param hi Upper bound, exclusive
+     * @return The number of elements in the range, 0 if hi <= lo
+     */
+    public int countInRange(T lo, T hi) {
+        if (lo.compareTo(hi) >= 0)
+            return 0;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * Iterate through the elements of list from largest to smallest, following
+     * the prev links
+     * 
+     * @return A new descending iterator for the list
+     */
+    public Iterator<T> descendingIterator() {
+        return new DescendingIterator(tail.prev[0], null);
     }
 
     /**
@@ -138,11 +249,11 @@ public class SkipList<T extends Comparable<? super T>> {
      * @return The value of the smallest entry less than or equal to x
      */
     public T floor(T x) {
-        findPred(x);
+        Entry<T> p = findLess(x);
 
-        if (!pred[0].next[0].equals(tail) && pred[0].next[0].getElement().compareTo(x) <= 0)
-            return pred[0].next[0].getElement();
-        return pred[0].getElement();
+        if (matches(p.next[0], x))
+            return p.next[0].getElement();
+        return p.getElement();
     }
 
     /**
@@ -156,13 +267,55 @@ public class SkipList<T extends Comparable<? super T>> {
         if (n > size - 1 || n < 0)
             throw new IndexOutOfBoundsException();
 
-        // Go to nth index of the list
-        Entry<T> p = head.next[0];
-        for (int i = 0; i < n; i++) {
-            p = p.next[0];
+        // Head is at position 0, so element n is at position n + 1
+        return entryAt(n + 1).getElement();
+    }
+
+    // Get the Entry at a position, head is at 0 and tail at size + 1
+    // Takes the highest link that does not pass the position, O(log n)
+    private Entry<T> entryAt(int n) {
+        Entry<T> p = head;
+        int pos = 0;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            while (pos + p.span[i] <= n) {
+                pos += p.span[i];
+                p = p.next[i];
+            }
         }
+        return p;
+    }
 
-        return p.getElement();
+    /**
+     * View of the elements less than to
+     * 
+     * @param to Upper bound, exclusive
+     * @return A view backed by this list
+     */
+    public SubList headSet(T to) {
+        return new SubList(null, to);
+    }
+
+    /**
+     * Get the index of x in the list. First element is at index 0.
+     * 
+     * @param x Value to look for
+     * @return The index of x, or -1 if x is not on the list
+     */
+    public int indexOf(T x) {
+        findPred(x);
+        return matches(pred[0].next[0], x) ? rank[0] : -1;
+    }
+
+    /**
+     * Count the elements that are less than x. Same as the index x has, or
+     * would have if it were added.
+     * 
+     * @param x Value to compare against
+     * @return The number of elements in the list less than x
+     */
+    public int rank(T x) {
+        findPred(x);
+        return rank[0];
     }
 
     /**
@@ -200,48 +353,624 @@ public class SkipList<T extends Comparable<? super T>> {
      */
     public T remove(T x) {
         // If list doesn't contain x then return null, change nothing
-        if (!contains(x))
+        // The same search gives the path used to unlink x
+        findPred(x);
+        if (!matches(pred[0].next[0], x))
             return null;
 
-        // Reference to the Entry to remove
         Entry<T> entry = pred[0].next[0];
+        unlink(entry);
+        return entry.getElement();
+    }
+
+    /**
+     * Remove every element of a sorted batch from the list. Each element is
+     * found from the path of the element before it.
+     * 
+     * @param sorted Elements in ascending order
+     * @return True if any element was removed
+     * @throws IllegalArgumentException if sorted is not in ascending order
+     */
+    public boolean removeAll(Iterable<? extends T> sorted) {
+        int before = size;
+        startFinger();
+        T last = null;
+        for (T x : sorted) {
+            if (last != null)
+                checkOrder(last, x);
+            last = x;
+
+            advance(x);
+            if (matches(pred[0].next[0], x))
+                unlink(pred[0].next[0]);
+        }
+        return size != before;
+    }
+
+    /**
+     * Get the size of the list
+     * 
+     * @return The number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Turn finger search on or off. With finger search, each search starts
+     * from the path of the previous search. It climbs from level 0 until the
+     * path there is before x and its next link is not, then goes down from
+     * that level. An element d positions away from the previous one is
+     * found in O(log d) instead of O(log n), which suits keys that mostly
+     * increase, such as timestamps. contains, floor and ceiling then also
+     * record their path.
+     * 
+     * @param on True to start searches from the last path, false to start from
+     *           head
+     */
+    public void setFingerSearch(boolean on) {
+        fingerSearch = on;
+    }
+
+    /**
+     * Spliterator over the elements of the list in sorted order. It splits
+     * its range at the middle position, found in O(log n) with the spans, so
+     * both parts have the same size and know it exactly.
+     * 
+     * @return A new spliterator for the list
+     */
+    public Spliterator<T> spliterator() {
+        return new SkipListSpliterator(head.next[0], tail, 1, size + 1);
+    }
+
+    /**
+     * Sequential stream of the elements in sorted order
+     * 
+     * @return A stream over the list
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Parallel stream of the elements, split by spliterator()
+     * 
+     * @return A parallel stream over the list
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * View of the elements x with from <= x < to. Changes to the list are seen
+     * by the view and changes through the view are made to the list.
+     * 
+     * @param from Lower bound, inclusive
+     * @param to   Upper bound, exclusive
+     * @return A view backed by this list
+     * @throws IllegalArgumentException if from is greater than to
+     */
+    public SubList subList(T from, T to) {
+        if (from.compareTo(to) > 0)
+            throw new IllegalArgumentException("from is greater than to");
+        return new SubList(from, to);
+    }
+
+    /**
+     * View of the elements greater than or equal to from
+     * 
+     * @param from Lower bound, inclusive
+     * @return A view backed by this list
+     */
+    public SubList tailSet(T from) {
+        return new SubList(from, null);
+    }
+
+    /**
+     * Find the path to x, and the position of each Entry on the path.
+     * Fills pred and rank in place, so searching does not allocate.
+     * 
+     * @param x Value to find a path towards
+     */
+    private void findPred(T x) {
+        if (fingerSearch) {
+            findFromFinger(x);
+            return;
+        }
+
+        // Get the path to the element, starting at the highest level in use
+        Entry<T> p = head;
+        int pos = 0;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            while (p.next[i] != tail && p.next[i].element.compareTo(x) < 0) {
+                pos += p.span[i];
+                p = p.next[i];
+            }
+            pred[i] = p;
+            rank[i] = pos;
+        }
+    }
+
+    /**
+     * Find the path to x starting from the path to the last Entry searched
+     * for. pred always holds a valid path: every operation that changes the
+     * list searches first and keeps the path valid.
+     * 
+     * @param x Value to find a path towards
+     */
+    private void findFromFinger(T x) {
+        // Climb until pred is before x and its next link is not
+        // The path above that level is already right for x
+        int top = maxLevel - 1;
+        int lvl = 0;
+        while (lvl < top && !(isBefore(pred[lvl], x)
+                && (pred[lvl].next[lvl] == tail || pred[lvl].next[lvl].element.compareTo(x) >= 0)))
+            lvl++;
+
+        // If even the top of the path is past x, start again from head
+        Entry<T> p = head;
+        int pos = 0;
+        if (isBefore(pred[lvl], x)) {
+            p = pred[lvl];
+            pos = rank[lvl];
+        }
+
+        for (int i = lvl; i >= 0; i--) {
+            // The old path is a shortcut at this level if it is further along but still before x
+            if (rank[i] > pos && isBefore(pred[i], x)) {
+                p = pred[i];
+                pos = rank[i];
+            }
+            while (p.next[i] != tail && p.next[i].element.compareTo(x) < 0) {
+                pos += p.span[i];
+                p = p.next[i];
+            }
+            pred[i] = p;
+            rank[i] = pos;
+        }
+    }
+
+    /**
+     * Insert x after the path in pred and rank. The path stays valid for
+     * elements greater than x.
+     * 
+     * @param x Value to insert, must not be on the list
+     */
+    private void insert(T x) {
+        // Create a new Entry for the list
+        if (size >= capacity())
+            grow();
+        int lvl = chooseLevel();
+        Entry<T> entry = new Entry<T>(x, lvl);
+
+        // Levels above maxLevel are not searched, so start them at head
+        for (; maxLevel < lvl; maxLevel++) {
+            pred[maxLevel] = head;
+            rank[maxLevel] = 0;
+            head.span[maxLevel] = size + 1;
+        }
+
+        // Add the entry to the list
+        // The new entry is at position rank[0] + 1
+        for (int i = 0; i < lvl; i++) {
+            // Insert new Entry after predecessor
+            entry.next[i] = pred[i].next[i];
+            pred[i].next[i] = entry;
+
+            // Split the span of the predecessor around the new entry
+            entry.span[i] = pred[i].span[i] - (rank[0] - rank[i]);
+            pred[i].span[i] = rank[0] - rank[i] + 1;
+
+            // Set prev node values
+            entry.prev[i] = pred[i];
+            entry.next[i].prev[i] = entry;
+        }
+        // Links above the new entry now skip one more element
+        for (int i = lvl; i < maxLevel; i++)
+            pred[i].span[i]++;
+
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Unlink the Entry after the path in pred. The path stays valid.
+     * 
+     * @param entry The Entry after pred[0]
+     */
+    private void unlink(Entry<T> entry) {
         int lvl = entry.level();
 
         // Remove all references to x Entry
         for (int i = 0; i < lvl; i++) {
             pred[i].next[i] = entry.next[i];
+            pred[i].span[i] += entry.span[i] - 1;
             entry.next[i].prev[i] = pred[i];
         }
+        // Links above the entry now skip one less element
+        for (int i = lvl; i < maxLevel; i++)
+            pred[i].span[i]--;
+
+        // Stop searching levels that no longer have any Entry
+        while (maxLevel > 1 && head.next[maxLevel - 1] == tail)
+            maxLevel--;
 
         size--;
-        return entry.getElement();
+        modCount++;
     }
 
     /**
-     * Get the size of the list
+     * Unlink an Entry using its prev links instead of a search. The links above
+     * the Entry that skip over it are found by climbing prev links, O(log n)
+     * expected. The saved path may go through the Entry, so it is moved back
+     * to head.
      * 
-     * @return The number of elements in the list
+     * @param entry The Entry to remove
      */
-    public int size() {
-        return size;
+    private void unlinkByPrev(Entry<T> entry) {
+        int lvl = entry.level();
+
+        for (int i = 0; i < lvl; i++) {
+            Entry<T> p = entry.prev[i];
+            p.next[i] = entry.next[i];
+            p.span[i] += entry.span[i] - 1;
+            entry.next[i].prev[i] = p;
+        }
+
+        // The predecessor at each higher level is the first Entry tall enough,
+        // going back from the predecessor at the top level of the entry
+        Entry<T> p = entry.prev[lvl - 1];
+        for (int i = lvl; i < maxLevel; i++) {
+            while (p.level() <= i)
+                p = p.prev[p.level() - 1];
+            p.span[i]--;
+        }
+
+        while (maxLevel > 1 && head.next[maxLevel - 1] == tail)
+            maxLevel--;
+
+        size--;
+        modCount++;
+        startFinger();
     }
 
     /**
-     * Find the path to x
+     * Start the path at head, before every element
+     */
+    private void startFinger() {
+        for (int i = 0; i < maxLevel; i++) {
+            pred[i] = head;
+            rank[i] = 0;
+        }
+    }
+
+    /**
+     * Move the path in pred and rank forward to x. Same as findPred(x) if the
+     * path was for an element less than or equal to x, but each level starts
+     * from where it was instead of from head.
      * 
      * @param x Value to find a path towards
      */
-    private void findPred(T x) {
-        // Clear pred array
-        pred = new Entry[PossibleLevels];
-
-        // Get the path to the element
+    private void advance(T x) {
         Entry<T> p = head;
-        for (int i = PossibleLevels - 1; i >= 0; i--) {
-            while (!p.next[i].equals(tail) && p.next[i].getElement().compareTo(x) < 0) {
+        int pos = 0;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            // Continue from the old path at this level if it is further along
+            if (rank[i] > pos) {
+                p = pred[i];
+                pos = rank[i];
+            }
+            while (p.next[i] != tail && p.next[i].element.compareTo(x) < 0) {
+                pos += p.span[i];
                 p = p.next[i];
             }
             pred[i] = p;
+            rank[i] = pos;
+        }
+    }
+
+    /**
+     * Set the path to the last Entry of each level, so that append can link
+     * new Entries after them
+     */
+    private void startAppend() {
+        for (int i = 0; i < maxLevel; i++) {
+            pred[i] = tail.prev[i];
+            rank[i] = size + 1 - pred[i].span[i];
+        }
+    }
+
+    /**
+     * Link x at the end of the list. The spans of the links to tail are not
+     * updated until finishAppend.
+     * 
+     * @param x Value to add, greater than every element of the list
+     */
+    private void append(T x) {
+        if (size >= capacity())
+            grow();
+        int lvl = chooseLevel();
+        Entry<T> entry = new Entry<T>(x, lvl);
+
+        for (; maxLevel < lvl; maxLevel++) {
+            pred[maxLevel] = head;
+            rank[maxLevel] = 0;
+        }
+
+        // The new entry is at position size + 1
+        int pos = size + 1;
+        for (int i = 0; i < lvl; i++) {
+            pred[i].next[i] = entry;
+            pred[i].span[i] = pos - rank[i];
+            entry.prev[i] = pred[i];
+            entry.next[i] = tail;
+            tail.prev[i] = entry;
+            pred[i] = entry;
+            rank[i] = pos;
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Set the spans of the links to tail after a run of append
+     */
+    private void finishAppend() {
+        for (int i = 0; i < maxLevel; i++)
+            pred[i].span[i] = size + 1 - rank[i];
+    }
+
+    /**
+     * Check that a batch is in ascending order
+     * 
+     * @param last The previous element of the batch
+     * @param x    The next element of the batch
+     * @return The result of x.compareTo(last), never negative
+     * @throws IllegalArgumentException if x is less than last
+     */
+    private int checkOrder(T last, T x) {
+        int cmp = x.compareTo(last);
+        if (cmp < 0)
+            throw new IllegalArgumentException("Batch is not sorted: " + x + " after " + last);
+        return cmp;
+    }
+
+    /**
+     * Find the last Entry less than x without recording the path, unless
+     * finger search is on. Used by the operations that do not change the list.
+     * 
+     * @param x Value to compare against
+     * @return The last Entry less than x, head if there is none
+     */
+    private Entry<T> findLess(T x) {
+        if (fingerSearch) {
+            findFromFinger(x);
+            return pred[0];
+        }
+
+        Entry<T> p = head;
+        for (int i = maxLevel - 1; i >= 0; i--) {
+            while (p.next[i] != tail && p.next[i].element.compareTo(x) < 0)
+                p = p.next[i];
+        }
+        return p;
+    }
+
+    /**
+     * Test if an Entry is before x
+     * 
+     * @param e Entry to test, may be head
+     * @param x Value to compare against
+     * @return True if e is head or its element is less than x
+     */
+    private boolean isBefore(Entry<T> e, T x) {
+        return e == head || e.element.compareTo(x) < 0;
+    }
+
+    /**
+     * Test if an Entry holds x
+     * 
+     * @param e Entry to test, may be tail
+     * @param x Value to compare against
+     * @return True if e is not tail and its element equals x
+     */
+    private boolean matches(Entry<T> e, T x) {
+        return e != tail && e.element.compareTo(x) == 0;
+    }
+
+    /**
+     * Pick the level of a new Entry. Level k is chosen with chance
+     * (1-p) * p^(k-1), so most Entries get 1 or 2 levels
+     * 
+     * @return A level between 1 and PossibleLevels
+     */
+    private int chooseLevel() {
+        // Each run of levelShift zero bits is one more level
+        int lvl = 1 + Long.numberOfTrailingZeros(random.nextLong()) / levelShift;
+        return Math.min(lvl, PossibleLevels);
+    }
+
+    /**
+     * Number of Entries the current PossibleLevels is enough for, 1/p^(PossibleLevels-1)
+     * 
+     * @return The size at which the list should grow another level
+     */
+    private long capacity() {
+        int bits = levelShift * (PossibleLevels - 1);
+        return bits >= 62 ? Long.MAX_VALUE : 1L << bits;
+    }
+
+    /**
+     * Add another level to head and tail so that taller Entries can be made
+     */
+    private void grow() {
+        int lvl = PossibleLevels++;
+
+        head.next = Arrays.copyOf(head.next, PossibleLevels);
+        head.prev = Arrays.copyOf(head.prev, PossibleLevels);
+        head.span = Arrays.copyOf(head.span, PossibleLevels);
+        tail.next = Arrays.copyOf(tail.next, PossibleLevels);
+        tail.prev = Arrays.copyOf(tail.prev, PossibleLevels);
+        tail.span = Arrays.copyOf(tail.span, PossibleLevels);
+        head.next[lvl] = tail;
+        head.span[lvl] = size + 1;
+        tail.prev[lvl] = head;
+
+        pred = Arrays.copyOf(pred, PossibleLevels);
+        rank = Arrays.copyOf(rank, PossibleLevels);
+        pred[lvl] = head;
+    }
+
+    /*
+     * Range of a SkipList, elements x with lo <= x < hi
+     * Elements are not copied, every method uses the list
+     */
+    public class SubList {
+        final T lo, hi; // Bounds of the range, null for no bound
+
+        SubList(T lo, T hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Add x to the list
+         * 
+         * @param x Value to be added, must be in the range
+         * @return true if x added successfully, false if the list already contained x
+         * @throws IllegalArgumentException if x is out of the range
+         */
+        public boolean add(T x) {
+            if (!inRange(x))
+                throw new IllegalArgumentException(x + " is out of the range");
+            return SkipList.this.add(x);
+        }
+
+        /**
+         * Test if x is in the range and on the list
+         * 
+         * @param x Value to look for
+         * @return True if x is in the view
+         */
+        public boolean contains(T x) {
+            return inRange(x) && SkipList.this.contains(x);
+        }
+
+        /**
+         * Iterate through the range from largest to smallest
+         * 
+         * @return A new descending iterator for the range
+         */
+        public Iterator<T> descendingIterator() {
+            return new DescendingIterator(hi == null ? tail.prev[0] : findLess(hi), lo);
+        }
+
+        /**
+         * Get the first element in the range
+         * 
+         * @return The smallest element in the range, null if the range is empty
+         */
+        public T first() {
+            Entry<T> e = lo == null ? head.next[0] : findLess(lo).next[0];
+            return e != tail && (hi == null || e.element.compareTo(hi) < 0) ? e.element : null;
+        }
+
+        /**
+         * View of the elements of this range less than to
+         * 
+         * @param to Upper bound, exclusive
+         * @return A view backed by the same list
+         */
+        public SubList headSet(T to) {
+            return new SubList(lo, min(hi, to));
+        }
+
+        /**
+         * Is the range empty or not
+         * 
+         * @return True if no element of the list is in the range
+         */
+        public boolean isEmpty() {
+            return first() == null;
+        }
+
+        /**
+         * Iterate through the range in sorted order
+         * 
+         * @return A new iterator for the range
+         */
+        public Iterator<T> iterator() {
+            return new SkipListIterator(lo == null ? head.next[0] : findLess(lo).next[0], hi);
+        }
+
+        /**
+         * Get the last element in the range
+         * 
+         * @return The largest element in the range, null if the range is empty
+         */
+        public T last() {
+            Entry<T> e = hi == null ? tail.prev[0] : findLess(hi);
+            return e != head && (lo == null || e.element.compareTo(lo) >= 0) ? e.element : null;
+        }
+
+        /**
+         * Remove x from the list if it is in the range
+         * 
+         * @param x Value to remove
+         * @return The value of the removed entry, null if x wasn't in the view
+         */
+        public T remove(T x) {
+            return inRange(x) ? SkipList.this.remove(x) : null;
+        }
+
+        /**
+         * Get the number of elements in the range, O(log n) using the spans
+         * 
+         * @return The number of elements in the range
+         */
+        public int size() {
+            int end = hi == null ? size : rank(hi);
+            int start = lo == null ? 0 : rank(lo);
+            return Math.max(end - start, 0);
+        }
+
+        /**
+         * View of the elements x of this range with from <= x < to
+         * 
+         * @param from Lower bound, inclusive
+         * @param to   Upper bound, exclusive
+         * @return A view backed by the same list
+         * @throws IllegalArgumentException if from is greater than to
+         */
+        public SubList subList(T from, T to) {
+            if (from.compareTo(to) > 0)
+                throw new IllegalArgumentException("from is greater than to");
+            return new SubList(max(lo, from), min(hi, to));
+        }
+
+        /**
+         * View of the elements of this range greater than or equal to from
+         * 
+         * @param from Lower bound, inclusive
+         * @return A view backed by the same list
+         */
+        public SubList tailSet(T from) {
+            return new SubList(max(lo, from), hi);
+        }
+
+        // Is x between the bounds
+        private boolean inRange(T x) {
+            return (lo == null || x.compareTo(lo) >= 0) && (hi == null || x.compareTo(hi) < 0);
+        }
+
+        // Larger of two lower bounds, null is no bound
+        private T max(T a, T b) {
+            return a == null || (b != null && b.compareTo(a) > 0) ? b : a;
+        }
+
+        // Smaller of two upper bounds, null is no bound
+        private T min(T a, T b) {
+            return a == null || (b != null && b.compareTo(a) < 0) ? b : a;
         }
     }
 
@@ -250,19 +979,29 @@ public class SkipList<T extends Comparable<? super T>> {
      */
     class SkipListIterator implements Iterator<T> {
         Entry<T> current;
+        Entry<T> lastReturned; // Entry removed by remove(), null if there is none
+        T hi; // Stop before the first element greater than or equal to hi, null for no bound
+        int expectedModCount; // modCount of the list when the iterator last saw it
 
         // Initialize iterator to Entry after head
         public SkipListIterator() {
-            current = head.next[0];
+            this(head.next[0], null);
+        }
+
+        // Initialize iterator to start at an Entry and stop before hi
+        SkipListIterator(Entry<T> start, T hi) {
+            current = start;
+            this.hi = hi;
+            expectedModCount = modCount;
         }
 
         /**
-         * Return true if the next element isn't the tail
+         * Return true if the next element isn't the tail or past hi
          * 
          * @return True if there is a next element after curent
          */
         public boolean hasNext() {
-            return !current.equals(tail);
+            return current != tail && (hi == null || current.element.compareTo(hi) < 0);
         }
 
         /**
@@ -271,10 +1010,174 @@ public class SkipList<T extends Comparable<? super T>> {
          * @return The value of the next element in the list
          */
         public T next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastReturned = current;
+            current = current.next[0];
+            return lastReturned.getElement();
+        }
+
+        /**
+         * Remove the element last returned by next from the list, without
+         * searching for it
+         */
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            unlinkByPrev(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+    }
+
+    /*
+     * Iterator from largest to smallest, follows the prev links
+     */
+    class DescendingIterator implements Iterator<T> {
+        Entry<T> current;
+        Entry<T> lastReturned; // Entry removed by remove(), null if there is none
+        T lo; // Stop after the last element greater than or equal to lo, null for no bound
+        int expectedModCount; // modCount of the list when the iterator last saw it
+
+        // Initialize iterator to start at an Entry and stop before lo
+        DescendingIterator(Entry<T> start, T lo) {
+            current = start;
+            this.lo = lo;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Return true if the next element isn't the head or before lo
+         * 
+         * @return True if there is a next element before curent
+         */
+        public boolean hasNext() {
+            return current != head && (lo == null || current.element.compareTo(lo) >= 0);
+        }
+
+        /**
+         * Get the next element in the SkipList, going backwards
+         * 
+         * @return The value of the next element in the list
+         */
+        public T next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastReturned = current;
+            current = current.prev[0];
+            return lastReturned.getElement();
+        }
+
+        /**
+         * Remove the element last returned by next from the list, without
+         * searching for it
+         */
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            unlinkByPrev(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /*
+     * Spliterator for SkipList class
+     * Covers the Entries from current up to but not including end, which are
+     * at positions lo to hi - 1 of the list. Splits at the Entry at the middle
+     * position, found by walking down from the top level of head with the
+     * spans, so the sizes of both parts are exact.
+     */
+    class SkipListSpliterator implements Spliterator<T> {
+        Entry<T> current; // Next Entry to give out
+        Entry<T> end; // First Entry after the range, tail for no bound
+        int lo; // Position of current, head is at 0
+        int hi; // Position of end
+        int expectedModCount; // modCount of the list when the spliterator was made
+
+        SkipListSpliterator(Entry<T> current, Entry<T> end, int lo, int hi) {
+            this.current = current;
+            this.end = end;
+            this.lo = lo;
+            this.hi = hi;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Split off the first half of the range
+         * 
+         * @return A spliterator for the elements before the middle, null if
+         *         there are fewer than 2 elements left
+         */
+        public Spliterator<T> trySplit() {
+            if (hi - lo < 2)
+                return null;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            int m = lo + (hi - lo) / 2;
+            Entry<T> mid = entryAt(m);
+            SkipListSpliterator prefix = new SkipListSpliterator(current, mid, lo, m);
+            prefix.expectedModCount = expectedModCount;
+            current = mid;
+            lo = m;
+            return prefix;
+        }
+
+        /**
+         * Give the next element to action
+         * 
+         * @param action Called with the next element
+         * @return False if there were no elements left
+         */
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (current == end)
+                return false;
             T element = current.getElement();
             current = current.next[0];
-            return element;
+            lo++;
+            action.accept(element);
+            return true;
+        }
+
+        /**
+         * Give every remaining element to action
+         * 
+         * @param action Called with each element in order
+         */
+        public void forEachRemaining(Consumer<? super T> action) {
+            Entry<T> p = current;
+            current = end;
+            lo = hi;
+            for (; p != end; p = p.next[0])
+                action.accept(p.getElement());
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
         }
 
+        public long estimateSize() {
+            return hi - lo;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL
+                    | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+
+        // Elements are in their natural order
+        public Comparator<? super T> getComparator() {
+            return null;
+        }
     }
 }
\ No newline at end of file
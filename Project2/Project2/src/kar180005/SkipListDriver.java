@@ -4,24 +4,23 @@
 package kar180005;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Iterator;
-import java.util.Scanner;
 
 public class SkipListDriver {
-	public static void main(String[] args) throws FileNotFoundException {
-		Scanner sc;
+	public static void main(String[] args) throws IOException {
+		MappedInput sc;
 		if (args.length > 0) {
 			File file = new File(args[0]);
-			sc = new Scanner(file);
+			sc = new MappedInput(file);
 		} else {
-			sc = new Scanner(System.in);
+			sc = new MappedInput(System.in);
 		}
 		String operation = "";
 		long operand = 0;
 		long result = 0;
 		Long returnValue = null;
-		SkipList<Long> skipList = new SkipList<>();
+		LongSkipList skipList = new LongSkipList();
 
 		// Initialize the timer
 		Timer timer = new Timer();
@@ -36,25 +35,28 @@ public class SkipListDriver {
 				break;
 			case "Ceiling":
 				operand = sc.nextLong();
-				returnValue = skipList.ceiling(operand);
+				// 0 if there is no ceiling, same as adding nothing
+				returnValue = skipList.ceiling(operand, 0);
 				break;
 			case "First":
-				returnValue = skipList.first();
+				if (!skipList.isEmpty())
+					returnValue = skipList.first();
 				break;
 			case "Get":
 				int intOperand = sc.nextInt();
 				returnValue = skipList.get(intOperand);
 				break;
 			case "Last":
-				returnValue = skipList.last();
+				if (!skipList.isEmpty())
+					returnValue = skipList.last();
 				break;
 			case "Floor":
 				operand = sc.nextLong();
-				returnValue = skipList.floor(operand);
+				returnValue = skipList.floor(operand, 0);
 				break;
 			case "Remove":
 				operand = sc.nextLong();
-				if (skipList.remove(operand) != null)
+				if (skipList.remove(operand))
 					returnValue = 1L;
 				break;
 			case "Contains":
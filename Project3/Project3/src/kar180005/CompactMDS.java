@@ -0,0 +1,474 @@
+/** Compact storage engine for MDS
+ *  @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Same operations and results as MDS, stored in primitive arrays so that a
+ * product costs about a tenth of the memory. MDS keeps a TreeMap entry, a
+ * Product, a boxed price and a LinkedList node and boxed Integer per
+ * description value, plus the price index nodes.
+ *
+ * Each product gets a slot. A slot is never moved while the product exists,
+ * so the slot is used in place of the id everywhere except the id -> slot map.
+ *  - slots: open addressing map from id to slot
+ *  - prices[s]: price of the product in slot s
+ *  - descs[s]: where its description starts in pool, NONE if the slot is free
+ *  - pool: descriptions packed one after another, each is its length and then
+ *    its values. Replaced descriptions are left as garbage until more than
+ *    half of the pool is garbage, then the pool is compacted.
+ *  - table: open addressing map from a description value to its Posting, the
+ *    slots of the products that have that value ordered by (price, slot)
+ *
+ * A Posting is a list of sorted blocks of at most BLOCK slots, so adding or
+ * removing moves at most BLOCK ints. Comparing two slots reads their prices,
+ * so the postings hold 4 bytes per product and value.
+ */
+public class CompactMDS {
+    static final int NONE = -1;
+    static final int BLOCK = 256; // Most slots in one block of a Posting
+    static final int INITIAL_CAPACITY = 16;
+
+    // id -> slot
+    IntIntMap slots;
+    // Fields of each product, indexed by slot
+    int[] prices; // Price, or the next free slot if the slot is free
+    int[] descs; // Start of the description in pool, NONE if the slot is free
+    int slotCount; // Slots 0 to slotCount - 1 are in use or free
+    int freeSlot; // First free slot, NONE if none
+
+    // Descriptions
+    int[] pool;
+    int poolUsed; // Ints of pool handed out
+    int poolGarbage; // Ints of pool no longer used by any description
+
+    // desc -> index of its Posting in postings
+    IntIntMap table;
+    Posting[] postings;
+    int postingCount; // Postings 0 to postingCount - 1 are in use or free
+    int[] freePostings; // Stack of free indexes of postings
+    int freePostingCount;
+
+    // Constructors
+    public CompactMDS() {
+        slots = new IntIntMap();
+        prices = new int[INITIAL_CAPACITY];
+        descs = new int[INITIAL_CAPACITY];
+        freeSlot = NONE;
+        pool = new int[4 * INITIAL_CAPACITY];
+        table = new IntIntMap();
+        postings = new Posting[INITIAL_CAPACITY];
+        freePostings = new int[INITIAL_CAPACITY];
+    }
+
+    // Public methods, same as MDS
+
+    /*
+     * a. Insert(id,price,list): insert a new item whose description is given in the
+     * list. If an entry with the same id already exists, then its description and
+     * price are replaced by the new values, unless list is null or empty, in which
+     * case, just the price is updated. Returns 1 if the item is new, and 0
+     * otherwise.
+     */
+    public int insert(int id, int price, java.util.List<Integer> list) {
+        int s = slots.get(id);
+        if (s == NONE) {
+            s = newSlot();
+            slots.put(id, s);
+            prices[s] = price;
+            descs[s] = newDesc(list);
+            addPostings(s);
+            return 1;
+        }
+
+        // Postings are ordered by price, so take the product out before changing it
+        removePostings(s);
+        prices[s] = price;
+        if (list != null && list.size() > 0) {
+            freeDesc(descs[s]);
+            descs[s] = newDesc(list);
+        }
+        addPostings(s);
+        compactIfNeeded();
+        return 0;
+    }
+
+    // b. Find(id): return price of item with given id (or 0, if not found).
+    public int find(int id) {
+        int s = slots.get(id);
+        return s == NONE ? 0 : prices[s];
+    }
+
+    /*
+     * c. Delete(id): delete item from storage. Returns the sum of the ints that are
+     * in the description of the item deleted, or 0, if such an id did not exist.
+     */
+    public int delete(int id) {
+        int s = slots.remove(id);
+        if (s == NONE)
+            return 0;
+
+        removePostings(s);
+        int start = descs[s];
+        int sum = 0;
+        for (int i = start + 1; i <= start + pool[start]; i++)
+            sum += pool[i];
+
+        freeDesc(start);
+        freeSlot(s);
+        compactIfNeeded();
+        return sum;
+    }
+
+    /*
+     * d. FindMinPrice(n): given an integer, find items whose description contains
+     * that number (exact match with one of the ints in the item's description), and
+     * return lowest price of those items. Return 0 if there is no such item.
+     */
+    public int findMinPrice(int n) {
+        int p = table.get(n);
+        return p == NONE ? 0 : postings[p].min();
+    }
+
+    /*
+     * e. FindMaxPrice(n): given an integer, find items whose description contains
+     * that number, and return highest price of those items. Return 0 if there is no
+     * such item.
+     */
+    public int findMaxPrice(int n) {
+        int p = table.get(n);
+        return p == NONE ? 0 : postings[p].max();
+    }
+
+    /*
+     * f. FindPriceRange(n,low,high): given int n, find the number of items whose
+     * description contains n, and in addition, their prices fall within the given
+     * range, [low, high].
+     */
+    public int findPriceRange(int n, int low, int high) {
+        int p = table.get(n);
+        if (p == NONE || low > high)
+            return 0;
+        return postings[p].countBelow((long) high + 1) - postings[p].countBelow(low);
+    }
+
+    /*
+     * g. RemoveNames(id, list): Remove elements of list from the description of id.
+     * It is possible that some of the items in the list are not in the id's
+     * description. Return the sum of the numbers that are actually deleted from the
+     * description of id. Return 0 if there is no such id.
+     */
+    public int removeNames(int id, java.util.List<Integer> list) {
+        int s = slots.get(id);
+        int sum = 0;
+
+        if (s != NONE) {
+            // Values to remove, so each value of the description is checked in O(1)
+            IntIntMap remove = new IntIntMap();
+            for (Integer i : list)
+                remove.put(i, 0);
+
+            // Slide the values that stay to the front of the description
+            int start = descs[s];
+            int len = pool[start];
+            int kept = 0;
+            for (int i = start + 1; i <= start + len; i++) {
+                if (remove.get(pool[i]) == NONE)
+                    pool[start + ++kept] = pool[i];
+                else {
+                    sum += pool[i];
+                    removePosting(pool[i], s);
+                }
+            }
+            pool[start] = kept;
+            poolGarbage += len - kept;
+            compactIfNeeded();
+        }
+
+        return sum;
+    }
+
+    // Add slot s to the Posting of each value of its description, once per value
+    private void addPostings(int s) {
+        int start = descs[s];
+        for (int i = start + 1; i <= start + pool[start]; i++) {
+            int p = table.get(pool[i]);
+            if (p == NONE) {
+                p = newPosting();
+                table.put(pool[i], p);
+            }
+            postings[p].add(s);
+        }
+    }
+
+    // Remove slot s from the Posting of each value of its description
+    private void removePostings(int s) {
+        int start = descs[s];
+        for (int i = start + 1; i <= start + pool[start]; i++)
+            removePosting(pool[i], s);
+    }
+
+    // Remove slot s from the Posting of v, if it is still there
+    private void removePosting(int v, int s) {
+        int p = table.get(v);
+        // A repeated value was already removed
+        if (p == NONE || !postings[p].remove(s))
+            return;
+        if (postings[p].count == 0) {
+            table.remove(v);
+            freePosting(p);
+        }
+    }
+
+    // Take a free slot, or a new one if there are none
+    private int newSlot() {
+        int s = freeSlot;
+        if (s != NONE) {
+            freeSlot = prices[s];
+            return s;
+        }
+        if (slotCount == prices.length) {
+            int capacity = slotCount + (slotCount >> 1);
+            prices = Arrays.copyOf(prices, capacity);
+            descs = Arrays.copyOf(descs, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void freeSlot(int s) {
+        descs[s] = NONE;
+        prices[s] = freeSlot;
+        freeSlot = s;
+    }
+
+    // Copy a description to the end of pool
+    // @return Where it starts in pool
+    private int newDesc(List<Integer> list) {
+        int len = list.size();
+        if (poolUsed + len + 1 > pool.length)
+            pool = Arrays.copyOf(pool, Math.max(poolUsed + len + 1, pool.length + (pool.length >> 1)));
+
+        int start = poolUsed;
+        pool[start] = len;
+        int i = start + 1;
+        for (Integer v : list)
+            pool[i++] = v;
+        poolUsed = i;
+        return start;
+    }
+
+    private void freeDesc(int start) {
+        poolGarbage += pool[start] + 1;
+    }
+
+    // Move every description to the front of a new pool once more than half is garbage
+    private void compactIfNeeded() {
+        if (poolGarbage <= poolUsed / 2 || poolUsed < 1024)
+            return;
+
+        int live = poolUsed - poolGarbage;
+        int[] compacted = new int[live + (live >> 2) + INITIAL_CAPACITY];
+        int used = 0;
+        for (int s = 0; s < slotCount; s++) {
+            if (descs[s] == NONE)
+                continue;
+            int len = pool[descs[s]] + 1;
+            System.arraycopy(pool, descs[s], compacted, used, len);
+            descs[s] = used;
+            used += len;
+        }
+        pool = compacted;
+        poolUsed = used;
+        poolGarbage = 0;
+    }
+
+    // Take a free Posting index, or a new one if there are none
+    private int newPosting() {
+        int p;
+        if (freePostingCount > 0)
+            p = freePostings[--freePostingCount];
+        else {
+            if (postingCount == postings.length)
+                postings = Arrays.copyOf(postings, postingCount + (postingCount >> 1));
+            p = postingCount++;
+        }
+        postings[p] = new Posting();
+        return p;
+    }
+
+    private void freePosting(int p) {
+        postings[p] = null;
+        if (freePostingCount == freePostings.length)
+            freePostings = Arrays.copyOf(freePostings, freePostingCount * 2);
+        freePostings[freePostingCount++] = p;
+    }
+
+    /*
+     * Slots of the products with one description value, ordered by (price, slot)
+     * Kept as a list of sorted blocks, each of at most BLOCK slots
+     */
+    class Posting {
+        int[][] blocks = new int[1][2];
+        int[] sizes = new int[1];
+        int nblocks = 1;
+        int count; // Slots in all blocks
+
+        // Add slot s if it is not already in the list
+        // @return True if s was added
+        boolean add(int s) {
+            int b = findBlock(prices[s], s);
+            int[] block = blocks[b];
+            int pos = search(block, sizes[b], prices[s], s);
+            if (pos < sizes[b] && block[pos] == s)
+                return false;
+
+            if (sizes[b] == block.length)
+                blocks[b] = block = Arrays.copyOf(block, Math.min(BLOCK, block.length + (block.length >> 1) + 1));
+            System.arraycopy(block, pos, block, pos + 1, sizes[b] - pos);
+            block[pos] = s;
+            sizes[b]++;
+            count++;
+
+            if (sizes[b] == BLOCK)
+                split(b);
+            return true;
+        }
+
+        // Remove slot s, which must be ordered by its current price
+        // @return True if s was in the list
+        boolean remove(int s) {
+            int b = findBlock(prices[s], s);
+            int[] block = blocks[b];
+            int pos = search(block, sizes[b], prices[s], s);
+            if (pos == sizes[b] || block[pos] != s)
+                return false;
+
+            System.arraycopy(block, pos + 1, block, pos, sizes[b] - pos - 1);
+            sizes[b]--;
+            count--;
+
+            // Drop empty blocks and join small neighbours
+            if (sizes[b] == 0 && nblocks > 1)
+                removeBlock(b);
+            else if (b + 1 < nblocks && sizes[b] + sizes[b + 1] <= BLOCK / 2)
+                join(b);
+            return true;
+        }
+
+        // Lowest price in the list
+        int min() {
+            return prices[blocks[0][0]];
+        }
+
+        // Highest price in the list
+        int max() {
+            return prices[blocks[nblocks - 1][sizes[nblocks - 1] - 1]];
+        }
+
+        // Count the slots with a price less than p
+        // O(log k) to find the block plus O(k / BLOCK) to add up the blocks before it
+        int countBelow(long p) {
+            int lo = 0, hi = nblocks - 1;
+            // First block whose last price is at least p
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (prices[blocks[mid][sizes[mid] - 1]] < p)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+
+            int before = 0;
+            for (int b = 0; b < lo; b++)
+                before += sizes[b];
+
+            int[] block = blocks[lo];
+            int l = 0, h = sizes[lo];
+            while (l < h) {
+                int mid = (l + h) >>> 1;
+                if (prices[block[mid]] < p)
+                    l = mid + 1;
+                else
+                    h = mid;
+            }
+            return before + l;
+        }
+
+        // Find the block (price, s) belongs in: the first whose last slot is not
+        // before it, or the last block
+        private int findBlock(int price, int s) {
+            int lo = 0, hi = nblocks - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(blocks[mid][sizes[mid] - 1], price, s) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        // Position of the first slot in block[0..size) that is not before (price, s)
+        private int search(int[] block, int size, int price, int s) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(block[mid], price, s) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        // Order of slot a against (price, s)
+        private int compare(int a, int price, int s) {
+            int c = Integer.compare(prices[a], price);
+            return c != 0 ? c : Integer.compare(a, s);
+        }
+
+        // Split full block b into two half full blocks
+        private void split(int b) {
+            int half = sizes[b] / 2;
+            int capacity = half + (half >> 2);
+            int[] right = Arrays.copyOfRange(blocks[b], half, half + capacity);
+            int[] left = Arrays.copyOf(blocks[b], capacity);
+            insertBlock(b + 1, right, sizes[b] - half);
+            blocks[b] = left;
+            sizes[b] = half;
+        }
+
+        // Move block b + 1 into block b
+        private void join(int b) {
+            int[] block = blocks[b];
+            if (sizes[b] + sizes[b + 1] > block.length)
+                blocks[b] = block = Arrays.copyOf(block, sizes[b] + sizes[b + 1]);
+            System.arraycopy(blocks[b + 1], 0, block, sizes[b], sizes[b + 1]);
+            sizes[b] += sizes[b + 1];
+            removeBlock(b + 1);
+        }
+
+        private void insertBlock(int b, int[] block, int size) {
+            if (nblocks == blocks.length) {
+                blocks = Arrays.copyOf(blocks, nblocks + (nblocks >> 1) + 1);
+                sizes = Arrays.copyOf(sizes, blocks.length);
+            }
+            System.arraycopy(blocks, b, blocks, b + 1, nblocks - b);
+            System.arraycopy(sizes, b, sizes, b + 1, nblocks - b);
+            blocks[b] = block;
+            sizes[b] = size;
+            nblocks++;
+        }
+
+        private void removeBlock(int b) {
+            System.arraycopy(blocks, b + 1, blocks, b, nblocks - b - 1);
+            System.arraycopy(sizes, b + 1, sizes, b, nblocks - b - 1);
+            nblocks--;
+            blocks[nblocks] = null;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/** Thread safe MDS
+ *  @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Same operations and results as MDS, safe to call from many threads.
+ *
+ * Ids are striped across segments, each a map from id to Product behind its
+ * own read write lock, so operations on ids of different segments do not
+ * wait for each other. Each description value has its own Posting, a set of
+ * (price, id) keys behind its own read write lock, found through a
+ * ConcurrentHashMap. Reads lock only the one segment or Posting they read,
+ * so they run in parallel with each other and with writes to anything else.
+ *
+ * A write holds the write lock of its segment and of every Posting it
+ * changes until all of its changes are made, so a reader sees either none or
+ * all of them. Postings are always locked in ascending order of their value
+ * and after the segment, so writers never deadlock. An emptied Posting is
+ * marked dead and removed from the map. A reader or writer that locks a dead
+ * Posting looks the value up again, since a new Posting may have replaced it.
+ */
+public class ConcurrentMDS {
+    static final int SEGMENTS = 64; // Default number of segments, a power of 2
+
+    static class Product {
+        int price;
+        // desc value -> number of times it is in the description
+        Map<Integer, Integer> desc;
+
+        Product(int price, Map<Integer, Integer> desc) {
+            this.price = price;
+            this.desc = desc;
+        }
+    }
+
+    static class Segment {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<Integer, Product> products = new HashMap<>();
+    }
+
+    static class Posting {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final PriceIndex index = new PriceIndex();
+        int root = PriceIndex.NIL; // Set of (price, id) in index
+        boolean dead; // Emptied and removed from table, never used again
+    }
+
+    Segment[] segments;
+    int mask; // segments.length - 1
+    // desc -> its Posting
+    ConcurrentHashMap<Integer, Posting> table;
+
+    // Constructors
+    public ConcurrentMDS() {
+        this(SEGMENTS);
+    }
+
+    // @param segments Number of segments, rounded up to a power of 2
+    public ConcurrentMDS(int segments) {
+        int n = Integer.highestOneBit(Math.max(1, segments - 1)) << 1;
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++)
+            this.segments[i] = new Segment();
+        mask = n - 1;
+        table = new ConcurrentHashMap<>();
+    }
+
+    // Public methods, same as MDS
+
+    /*
+     * a. Insert(id,price,list): insert a new item whose description is given in the
+     * list. If an entry with the same id already exists, then its description and
+     * price are replaced by the new values, unless list is null or empty, in which
+     * case, just the price is updated. Returns 1 if the item is new, and 0
+     * otherwise.
+     */
+    public int insert(int id, int price, java.util.List<Integer> list) {
+        Segment seg = segment(id);
+        seg.lock.writeLock().lock();
+        try {
+            Product prod = seg.products.get(id);
+            long newKey = PriceIndex.key(price, id);
+
+            // If new product
+            if (prod == null) {
+                Map<Integer, Integer> desc = count(list);
+                int[] values = sorted(desc.keySet());
+                Posting[] postings = new Posting[values.length];
+                try {
+                    lockPostings(values, postings);
+                    for (Posting p : postings)
+                        p.root = p.index.insert(p.root, newKey);
+                    seg.products.put(id, new Product(price, desc));
+                } finally {
+                    unlockPostings(values, postings);
+                }
+                return 1;
+            }
+
+            long oldKey = PriceIndex.key(prod.price, id);
+            Map<Integer, Integer> newDesc = list == null || list.size() == 0 ? prod.desc : count(list);
+
+            // Values whose Posting changes, as in the update of MDS.insert
+            Set<Integer> changed = new HashSet<>();
+            for (Integer i : prod.desc.keySet())
+                if (oldKey != newKey || !newDesc.containsKey(i))
+                    changed.add(i);
+            for (Integer i : newDesc.keySet())
+                if (!prod.desc.containsKey(i))
+                    changed.add(i);
+
+            int[] values = sorted(changed);
+            Posting[] postings = new Posting[values.length];
+            try {
+                lockPostings(values, postings);
+                for (int j = 0; j < values.length; j++) {
+                    Posting p = postings[j];
+                    if (prod.desc.containsKey(values[j]))
+                        p.root = p.index.remove(p.root, oldKey);
+                    if (newDesc.containsKey(values[j]))
+                        p.root = p.index.insert(p.root, newKey);
+                }
+                prod.price = price;
+                prod.desc = newDesc;
+            } finally {
+                unlockPostings(values, postings);
+            }
+            return 0;
+        } finally {
+            seg.lock.writeLock().unlock();
+        }
+    }
+
+    // b. Find(id): return price of item with given id (or 0, if not found).
+    public int find(int id) {
+        Segment seg = segment(id);
+        seg.lock.readLock().lock();
+        try {
+            Product prod = seg.products.get(id);
+            return prod != null ? prod.price : 0;
+        } finally {
+            seg.lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * c. Delete(id): delete item from storage. Returns the sum of the ints that are
+     * in the description of the item deleted, or 0, if such an id did not exist.
+     */
+    public int delete(int id) {
+        Segment seg = segment(id);
+        seg.lock.writeLock().lock();
+        try {
+            Product prod = seg.products.remove(id);
+            if (prod == null)
+                return 0;
+
+            long key = PriceIndex.key(prod.price, id);
+            int[] values = sorted(prod.desc.keySet());
+            Posting[] postings = new Posting[values.length];
+            int sum = 0;
+            try {
+                lockPostings(values, postings);
+                for (int j = 0; j < values.length; j++) {
+                    postings[j].root = postings[j].index.remove(postings[j].root, key);
+                    sum += values[j] * prod.desc.get(values[j]);
+                }
+            } finally {
+                unlockPostings(values, postings);
+            }
+            return sum;
+        } finally {
+            seg.lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * d. FindMinPrice(n): given an integer, find items whose description contains
+     * that number (exact match with one of the ints in the item's description), and
+     * return lowest price of those items. Return 0 if there is no such item.
+     */
+    public int findMinPrice(int n) {
+        Posting p = readPosting(n);
+        if (p == null)
+            return 0;
+        try {
+            return p.root == PriceIndex.NIL ? 0 : PriceIndex.price(p.index.min(p.root));
+        } finally {
+            p.lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * e. FindMaxPrice(n): given an integer, find items whose description contains
+     * that number, and return highest price of those items. Return 0 if there is no
+     * such item.
+     */
+    public int findMaxPrice(int n) {
+        Posting p = readPosting(n);
+        if (p == null)
+            return 0;
+        try {
+            return p.root == PriceIndex.NIL ? 0 : PriceIndex.price(p.index.max(p.root));
+        } finally {
+            p.lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * f. FindPriceRange(n,low,high): given int n, find the number of items whose
+     * description contains n, and in addition, their prices fall within the given
+     * range, [low, high].
+     */
+    public int findPriceRange(int n, int low, int high) {
+        Posting p = readPosting(n);
+        if (p == null)
+            return 0;
+        try {
+            return p.index.countPriceRange(p.root, low, high);
+        } finally {
+            p.lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * g. RemoveNames(id, list): Remove elements of list from the description of id.
+     * It is possible that some of the items in the list are not in the id's
+     * description. Return the sum of the numbers that are actually deleted from the
+     * description of id. Return 0 if there is no such id.
+     */
+    public int removeNames(int id, java.util.List<Integer> list) {
+        Segment seg = segment(id);
+        seg.lock.writeLock().lock();
+        try {
+            Product prod = seg.products.get(id);
+            if (prod == null)
+                return 0;
+
+            // Values of list that are in the description
+            Set<Integer> removed = new HashSet<>();
+            for (Integer i : list)
+                if (prod.desc.containsKey(i))
+                    removed.add(i);
+
+            long key = PriceIndex.key(prod.price, id);
+            int[] values = sorted(removed);
+            Posting[] postings = new Posting[values.length];
+            int sum = 0;
+            try {
+                lockPostings(values, postings);
+                for (int j = 0; j < values.length; j++) {
+                    postings[j].root = postings[j].index.remove(postings[j].root, key);
+                    sum += values[j] * prod.desc.remove(values[j]);
+                }
+            } finally {
+                unlockPostings(values, postings);
+            }
+            return sum;
+        } finally {
+            seg.lock.writeLock().unlock();
+        }
+    }
+
+    // Segment of an id
+    private Segment segment(int id) {
+        int h = id * 0x9e3779b9;
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    // Read lock the Posting of a value
+    // @return The locked Posting, null if the value has none
+    private Posting readPosting(int n) {
+        while (true) {
+            Posting p = table.get(n);
+            if (p == null)
+                return null;
+            p.lock.readLock().lock();
+            if (!p.dead)
+                return p;
+            // Emptied by a writer after we found it
+            p.lock.readLock().unlock();
+        }
+    }
+
+    // Write lock the Posting of each value, creating missing ones
+    // @param values Distinct values in ascending order
+    // @param postings Filled with the locked Posting of each value
+    private void lockPostings(int[] values, Posting[] postings) {
+        for (int j = 0; j < values.length; j++) {
+            while (true) {
+                Posting p = table.computeIfAbsent(values[j], v -> new Posting());
+                p.lock.writeLock().lock();
+                if (!p.dead) {
+                    postings[j] = p;
+                    break;
+                }
+                // Emptied by another writer after we found it
+                p.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Remove the Postings that are now empty and unlock every Posting locked so far
+    private void unlockPostings(int[] values, Posting[] postings) {
+        for (int j = 0; j < values.length; j++) {
+            Posting p = postings[j];
+            if (p == null)
+                continue;
+            if (p.root == PriceIndex.NIL) {
+                p.dead = true;
+                table.remove(values[j], p);
+            }
+            p.lock.writeLock().unlock();
+        }
+    }
+
+    // Count how many times each value is in a description
+    private static Map<Integer, Integer> count(List<Integer> list) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Integer i : list)
+            counts.merge(i, 1, Integer::sum);
+        return counts;
+    }
+
+    private static int[] sorted(Set<Integer> values) {
+        int[] a = new int[values.size()];
+        int j = 0;
+        for (Integer i : values)
+            a[j++] = i;
+        Arrays.sort(a);
+        return a;
+    }
+}
@@ -0,0 +1,126 @@
+/** Map from int to int for CompactMDS
+ *  @author Kevin Roa
+ */
+
+package kar180005;
+
+/*
+ * Open addressing hash map from int keys to non negative int values, with
+ * linear probing. Keys and values are kept in two int arrays, so an entry is
+ * 8 bytes and no object. Removing shifts the following entries back instead
+ * of leaving a marker, so lookups never slow down after many removals.
+ */
+public class IntIntMap {
+    static final int INITIAL_CAPACITY = 16; // A power of 2
+    static final float LOAD_FACTOR = 0.75f;
+
+    int[] keys;
+    int[] vals; // vals[i] is the value + 1, 0 if slot i is empty
+    int size;
+    int mask; // keys.length - 1
+    int threshold; // Grow when size reaches this
+
+    public IntIntMap() {
+        keys = new int[INITIAL_CAPACITY];
+        vals = new int[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+        threshold = (int) (INITIAL_CAPACITY * LOAD_FACTOR);
+    }
+
+    // Get the value of a key
+    // @return The value, or -1 if the key is not in the map
+    public int get(int key) {
+        int i = slot(key);
+        while (vals[i] != 0) {
+            if (keys[i] == key)
+                return vals[i] - 1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Set the value of a key
+    // @param val Value, must not be negative
+    // @return The old value, or -1 if the key was not in the map
+    public int put(int key, int val) {
+        int i = slot(key);
+        while (vals[i] != 0) {
+            if (keys[i] == key) {
+                int old = vals[i] - 1;
+                vals[i] = val + 1;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        vals[i] = val + 1;
+        if (++size >= threshold)
+            grow();
+        return -1;
+    }
+
+    // Remove a key
+    // @return The value it had, or -1 if the key was not in the map
+    public int remove(int key) {
+        int i = slot(key);
+        while (vals[i] != 0) {
+            if (keys[i] == key) {
+                int old = vals[i] - 1;
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Fill the hole at i with a later entry of the same run, if one belongs at or before i
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (vals[i] == 0)
+                break;
+            // Distance of the entry at i from its home slot, and of the hole
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                vals[hole] = vals[i];
+                hole = i;
+            }
+        }
+        vals[hole] = 0;
+    }
+
+    // Double the table and put every entry back
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldVals = vals;
+        keys = new int[oldKeys.length * 2];
+        vals = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        threshold = (int) (keys.length * LOAD_FACTOR);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldVals[j] == 0)
+                continue;
+            int i = slot(oldKeys[j]);
+            while (vals[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            vals[i] = oldVals[j];
+        }
+    }
+
+    // Home slot of a key
+    private int slot(int key) {
+        int h = key * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -5,20 +5,19 @@
 package kar180005;
 
 import java.util.List;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 public class MDS {
     public class Product {
         Integer price;
-        List<Integer> desc;
+        // desc value -> number of times it is in the description
+        Map<Integer, Integer> desc;
 
         public Product( int price, java.util.List<Integer> desc) {
             this.price = price;
-            this.desc = new LinkedList<>(desc);;
+            this.desc = count(desc);
         }
 
         // Used for debugging
@@ -31,13 +30,16 @@ public class MDS {
 
     // id -> {price, desc}
     TreeMap<Integer, Product> tree;
-    // desc -> [ids]
-    Map<Integer, TreeSet<Integer>> table;
+    // desc -> root of its set of (price, id) in index
+    Map<Integer, Integer> table;
+    // Sets of (price, id) ordered by price, one per desc
+    PriceIndex index;
 
     // Constructors
     public MDS() {
         tree = new TreeMap<>();
         table = new HashMap<>();
+        index = new PriceIndex();
     }
 
     // Public methods of MDS. Do not change their signatures.
@@ -50,40 +52,52 @@ public class MDS {
      * otherwise.
      */
     public int insert(int id, int price, java.util.List<Integer> list) {
+        Product prod = tree.get(id);
+
         // If new product
-        if(!tree.containsKey(id)) {
+        if(prod == null) {
             // Add product to tree
-            tree.put(id, new Product(price, list));
+            prod = new Product(price, list);
+            tree.put(id, prod);
 
-            for(Integer i : list) {
-                // Add product to table
-                TreeSet<Integer> set = table.get(i);
-                if (set == null) {
-                    TreeSet<Integer> value = new TreeSet<>();
-                    value.add(id);
-                    table.put(i, value);
-                } else {
-                    set.add(id);
-                    table.put(i, set);
-                }
-    
-            }
+            long key = PriceIndex.key(price, id);
+            for(Integer i : prod.desc.keySet())
+                addToIndex(i, key);
             return 1;
         }
 
-        // Get current product desc
-        List<Integer> desc = tree.get(id).desc;
+        // Update the product in place, only touching the indexes that change
+        long oldKey = PriceIndex.key(prod.price, id);
+        long newKey = PriceIndex.key(price, id);
+
+        if (list == null || list.size() == 0) {
+            // Price only, move the product within the index of each value
+            if (oldKey != newKey) {
+                for (Integer i : prod.desc.keySet()) {
+                    removeFromIndex(i, oldKey);
+                    addToIndex(i, newKey);
+                }
+            }
+        } else {
+            // New description, diff it against the old one
+            Map<Integer, Integer> newDesc = count(list);
+            for (Integer i : prod.desc.keySet()) {
+                if (!newDesc.containsKey(i))
+                    removeFromIndex(i, oldKey);
+                else if (oldKey != newKey) {
+                    removeFromIndex(i, oldKey);
+                    addToIndex(i, newKey);
+                }
+            }
+            for (Integer i : newDesc.keySet())
+                if (!prod.desc.containsKey(i))
+                    addToIndex(i, newKey);
 
-        delete(id);
+            prod.desc = newDesc;
+        }
 
-        // Insert product with new data
-        if (list == null || list.size() == 0)
-            insert(id, price, desc);
-        else
-            insert(id, price, list);
-        
+        prod.price = price;
         return 0;
-
     }
 
     // b. Find(id): return price of item with given id (or 0, if not found).
@@ -102,19 +116,12 @@ public class MDS {
 
         int sum = 0;
         if (key != null) {
+            long k = PriceIndex.key(key.price, id);
             // Loop over all values in product desc
-            for (Integer i : key.desc) {
-                // Remove reference to product from key
-                TreeSet<Integer> ids = table.get(i);
-                if(ids != null) {
-                    if (ids.size() > 1) {
-                        ids.remove(id);
-                        table.put(i, ids);
-                    }
-                    else 
-                        table.remove(i);
-                }
-                sum += i;
+            for (Map.Entry<Integer, Integer> e : key.desc.entrySet()) {
+                // Remove reference to product from the index of the value
+                removeFromIndex(e.getKey(), k);
+                sum += e.getKey() * e.getValue();
             }
         }
 
@@ -127,17 +134,9 @@ public class MDS {
      * return lowest price of those items. Return 0 if there is no such item.
      */
     public int findMinPrice(int n) {
-        Integer min = null;
-        for(Integer i : table.get(n)) {
-            Product prod = tree.get(i);
-            if (prod != null) {
-                int price = prod.price;
-                if(min == null || price < min)
-                    min = price;
-            }
-        }
-
-        return min == null ? 0 : min;
+        // Smallest (price, id) of n, O(log k) for k items with n
+        Integer root = table.get(n);
+        return root == null ? 0 : PriceIndex.price(index.min(root));
     }
 
     /*
@@ -146,17 +145,9 @@ public class MDS {
      * such item.
      */
     public int findMaxPrice(int n) {
-        Integer max = null;
-        for (Integer i : table.get(n)) {
-            Product prod = tree.get(i);
-            if (prod != null) {
-                int price = prod.price;
-                if (max == null || price > max)
-                    max = price;
-            }
-        }
-
-        return max == null ? 0 : max;
+        // Largest (price, id) of n, O(log k) for k items with n
+        Integer root = table.get(n);
+        return root == null ? 0 : PriceIndex.price(index.max(root));
     }
 
     /*
@@ -165,17 +156,9 @@ public class MDS {
      * range, [low, high].
      */
     public int findPriceRange(int n, int low, int high) {
-        int count = 0;
-        for (Integer i : table.get(n)) {
-            Product prod = tree.get(i);
-            if (prod != null) {
-                int price = prod.price;
-                if (price >= low && price <= high)
-                    count ++;
-            }
-        }
-
-        return count;
+        // Count using the subtree sizes of the index, O(log k)
+        Integer root = table.get(n);
+        return root == null ? 0 : index.countPriceRange(root, low, high);
     }
 
     /*
@@ -189,21 +172,40 @@ public class MDS {
         int sum = 0;
 
         if (prod != null) {
-            // List of values the product will have afterward
-            List<Integer> keep = new LinkedList<>();
+            long key = PriceIndex.key(prod.price, id);
             for(Integer i : list) {
-                // If a value from list is also in the product desc
-                TreeSet<Integer> ids = table.get(i);
-                if (ids != null && ids.contains(id))
-                    sum += i;
-                else
-                    // If value not in product desc
-                    keep.add(i);
+                // If a value from list is in the product desc, remove every copy of it
+                Integer count = prod.desc.remove(i);
+                if (count != null) {
+                    removeFromIndex(i, key);
+                    sum += i * count;
+                }
             }
-            
-            insert(id, prod.price, keep);
         }
 
         return sum;
     }
+
+    // Count how many times each value is in a description
+    private static Map<Integer, Integer> count(List<Integer> list) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Integer i : list)
+            counts.merge(i, 1, Integer::sum);
+        return counts;
+    }
+
+    // Add a (price, id) key to the index of desc value v
+    private void addToIndex(int v, long key) {
+        Integer root = table.get(v);
+        table.put(v, index.insert(root == null ? PriceIndex.NIL : root, key));
+    }
+
+    // Remove a (price, id) key from the index of desc value v, the key must be in it
+    private void removeFromIndex(int v, long key) {
+        int rest = index.remove(table.get(v), key);
+        if (rest != PriceIndex.NIL)
+            table.put(v, rest);
+        else
+            table.remove(v);
+    }
 }
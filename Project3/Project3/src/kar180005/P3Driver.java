@@ -8,16 +8,15 @@ package kar180005;
 import java.io.File;
 import java.util.List;
 import java.util.LinkedList;
-import java.util.Scanner;
 
 public class P3Driver {
 	public static void main(String[] args) throws Exception {
-		Scanner in;
+		MappedInput in;
 		if (args.length > 0 && !args[0].equals("-")) {
 			File file = new File(args[0]);
-			in = new Scanner(file);
+			in = new MappedInput(file);
 		} else {
-			in = new Scanner(System.in);
+			in = new MappedInput(System.in);
 		}
 		boolean VERBOSE = false;
 		if (args.length > 1) {
@@ -0,0 +1,231 @@
+/** Price index for MDS
+ *  @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.Arrays;
+
+/*
+ * Ordered sets of (price, id) pairs with order statistics, one set per
+ * description value of MDS. Each set is a treap, a binary search tree that
+ * is kept balanced by giving each node a random priority, and each node
+ * keeps the size of its subtree so that the number of pairs below a key can
+ * be counted in O(log k).
+ *
+ * The nodes of every set share one pool of parallel arrays, so a node is
+ * 24 bytes and not an object. A set is named by the index of its root, NIL
+ * for an empty set. Methods that change a set return its new root.
+ */
+public class PriceIndex {
+    static final int NIL = 0; // Empty tree, node 0 is never used
+    static final int INITIAL_CAPACITY = 16;
+
+    long[] key; // key[t] is (price, id) packed by key(price, id)
+    int[] left, right; // Children of t, or the next free node in left if t is free
+    int[] size; // Number of nodes in the subtree of t
+    int[] priority; // A parent's priority is at least as high as its children's
+    int nodes; // Nodes 1 to nodes - 1 are in use or free
+    int free; // First free node, NIL if none
+    int seed; // State of the random priorities
+
+    public PriceIndex() {
+        key = new long[INITIAL_CAPACITY];
+        left = new int[INITIAL_CAPACITY];
+        right = new int[INITIAL_CAPACITY];
+        size = new int[INITIAL_CAPACITY];
+        priority = new int[INITIAL_CAPACITY];
+        nodes = 1;
+        free = NIL;
+        seed = 0x9e3779b9;
+    }
+
+    // Pack a price and an id into one key, ordered by price then by id
+    // @param price Price of the product
+    // @param id Id of the product
+    // @return The key of the pair
+    public static long key(int price, int id) {
+        return ((long) price << 32) | (id & 0xffffffffL);
+    }
+
+    // Get the price of a key
+    public static int price(long k) {
+        return (int) (k >> 32);
+    }
+
+    // Test if a set contains a key
+    // @param t Root of the set
+    // @return True if k is in the set
+    public boolean contains(int t, long k) {
+        while (t != NIL && key[t] != k)
+            t = k < key[t] ? left[t] : right[t];
+        return t != NIL;
+    }
+
+    // Add a key to a set, the key must not be in the set already
+    // @param t Root of the set
+    // @param k Key to add
+    // @return The new root of the set
+    public int insert(int t, long k) {
+        return insert(t, newNode(k));
+    }
+
+    private int insert(int t, int n) {
+        if (t == NIL)
+            return n;
+        if (key[n] < key[t]) {
+            left[t] = insert(left[t], n);
+            if (priority[left[t]] > priority[t])
+                t = rotateRight(t);
+        } else {
+            right[t] = insert(right[t], n);
+            if (priority[right[t]] > priority[t])
+                t = rotateLeft(t);
+        }
+        update(t);
+        return t;
+    }
+
+    // Remove a key from a set, nothing changes if it is not in the set
+    // @param t Root of the set
+    // @param k Key to remove
+    // @return The new root of the set, NIL if it is now empty
+    public int remove(int t, long k) {
+        if (t == NIL)
+            return NIL;
+        if (k < key[t])
+            left[t] = remove(left[t], k);
+        else if (k > key[t])
+            right[t] = remove(right[t], k);
+        else {
+            int n = t;
+            t = merge(left[n], right[n]);
+            freeNode(n);
+            return t;
+        }
+        update(t);
+        return t;
+    }
+
+    // Get the smallest key of a set, O(log k)
+    // @param t Root of the set, not NIL
+    public long min(int t) {
+        while (left[t] != NIL)
+            t = left[t];
+        return key[t];
+    }
+
+    // Get the largest key of a set, O(log k)
+    // @param t Root of the set, not NIL
+    public long max(int t) {
+        while (right[t] != NIL)
+            t = right[t];
+        return key[t];
+    }
+
+    // Count the keys of a set that are less than k, O(log k)
+    // @param t Root of the set
+    // @param k Key to compare against
+    // @return The number of keys less than k
+    public int countLess(int t, long k) {
+        int count = 0;
+        while (t != NIL) {
+            if (key[t] < k) {
+                count += size[left[t]] + 1;
+                t = right[t];
+            } else
+                t = left[t];
+        }
+        return count;
+    }
+
+    // Count the products of a set with a price in [low, high], O(log k)
+    // @param t Root of the set
+    // @return The number of keys whose price is in the range
+    public int countPriceRange(int t, int low, int high) {
+        if (low > high)
+            return 0;
+        // All ids of a price lie between key(price, 0) and key(price, -1)
+        long end = key(high, -1);
+        int atMostHigh = countLess(t, end) + (contains(t, end) ? 1 : 0);
+        return atMostHigh - countLess(t, key(low, 0));
+    }
+
+    // Get the number of keys in a set
+    public int size(int t) {
+        return size[t];
+    }
+
+    // Join two sets where every key of a is less than every key of b
+    private int merge(int a, int b) {
+        if (a == NIL)
+            return b;
+        if (b == NIL)
+            return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int rotateRight(int t) {
+        int l = left[t];
+        left[t] = right[l];
+        right[l] = t;
+        update(t);
+        return l;
+    }
+
+    private int rotateLeft(int t) {
+        int r = right[t];
+        right[t] = left[r];
+        left[r] = t;
+        update(t);
+        return r;
+    }
+
+    // Recompute the subtree size of t from its children
+    private void update(int t) {
+        size[t] = size[left[t]] + size[right[t]] + 1;
+    }
+
+    // Take a free node, or a new one if there are none
+    private int newNode(long k) {
+        int n = free;
+        if (n != NIL)
+            free = left[n];
+        else {
+            if (nodes == key.length) {
+                int capacity = nodes + (nodes >> 1);
+                key = Arrays.copyOf(key, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                size = Arrays.copyOf(size, capacity);
+                priority = Arrays.copyOf(priority, capacity);
+            }
+            n = nodes++;
+        }
+
+        // xorshift
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+
+        key[n] = k;
+        left[n] = NIL;
+        right[n] = NIL;
+        size[n] = 1;
+        priority[n] = seed;
+        return n;
+    }
+
+    // Put a node on the free list
+    private void freeNode(int n) {
+        left[n] = free;
+        free = n;
+    }
+}
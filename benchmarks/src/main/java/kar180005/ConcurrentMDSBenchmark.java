@@ -0,0 +1,162 @@
+/**
+ * JMH throughput benchmark for ConcurrentMDS
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed workload on one MDS shared by every benchmark thread. Each operation
+ * is a read with chance readPercent, one of find, findMinPrice, findMaxPrice
+ * and findPriceRange. Otherwise it is a write: a price-only insert 70% of
+ * the time, else an insert with a new description. SynchronizedMDS is MDS
+ * with every call behind one lock, which is how it is shared now.
+ *
+ * Change the number of threads with -t, e.g. for 1 to 32 threads
+ * for t in 1 2 4 8 16 32; do java -jar target/benchmarks.jar ConcurrentMDSBenchmark -t $t; done
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentMDSBenchmark {
+    static final int DESC_LENGTH = 5; // Description values per product
+    static final int MAX_PRICE = 10000;
+
+    // Operations of the MDS being compared
+    interface Store {
+        int insert(int id, int price, List<Integer> list);
+
+        int find(int id);
+
+        int findMinPrice(int n);
+
+        int findMaxPrice(int n);
+
+        int findPriceRange(int n, int low, int high);
+    }
+
+    @Param({ "ConcurrentMDS", "SynchronizedMDS" })
+    String impl;
+
+    @Param({ "100000" })
+    int size; // Number of products, ids are 1..size
+
+    @Param({ "90", "50" })
+    int readPercent;
+
+    Store mds;
+    int names; // Description values are 1..names
+
+    @Setup
+    public void setup() {
+        if (impl.equals("ConcurrentMDS")) {
+            ConcurrentMDS c = new ConcurrentMDS();
+            mds = new Store() {
+                public int insert(int id, int price, List<Integer> list) {
+                    return c.insert(id, price, list);
+                }
+
+                public int find(int id) {
+                    return c.find(id);
+                }
+
+                public int findMinPrice(int n) {
+                    return c.findMinPrice(n);
+                }
+
+                public int findMaxPrice(int n) {
+                    return c.findMaxPrice(n);
+                }
+
+                public int findPriceRange(int n, int low, int high) {
+                    return c.findPriceRange(n, low, high);
+                }
+            };
+        } else {
+            MDS m = new MDS();
+            mds = new Store() {
+                public synchronized int insert(int id, int price, List<Integer> list) {
+                    return m.insert(id, price, list);
+                }
+
+                public synchronized int find(int id) {
+                    return m.find(id);
+                }
+
+                public synchronized int findMinPrice(int n) {
+                    return m.findMinPrice(n);
+                }
+
+                public synchronized int findMaxPrice(int n) {
+                    return m.findMaxPrice(n);
+                }
+
+                public synchronized int findPriceRange(int n, int low, int high) {
+                    return m.findPriceRange(n, low, high);
+                }
+            };
+        }
+
+        Random rand = new Random(42);
+        names = Math.max(10, size / 100);
+        for (int id = 1; id <= size; id++)
+            mds.insert(id, 1 + rand.nextInt(MAX_PRICE), newDesc(rand));
+    }
+
+    private List<Integer> newDesc(Random rand) {
+        List<Integer> desc = new ArrayList<>(DESC_LENGTH);
+        for (int j = 0; j < DESC_LENGTH; j++)
+            desc.add(1 + rand.nextInt(names));
+        return desc;
+    }
+
+    @Benchmark
+    public int mixed() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        int op = rand.nextInt(100);
+        if (op < readPercent) {
+            int n = 1 + rand.nextInt(names);
+            switch (op & 3) {
+            case 0:
+                return mds.find(1 + rand.nextInt(size));
+            case 1:
+                return mds.findMinPrice(n);
+            case 2:
+                return mds.findMaxPrice(n);
+            default:
+                int low = rand.nextInt(MAX_PRICE);
+                return mds.findPriceRange(n, low, low + MAX_PRICE / 4);
+            }
+        }
+
+        int id = 1 + rand.nextInt(size);
+        int price = 1 + rand.nextInt(MAX_PRICE);
+        if (rand.nextInt(10) < 7)
+            return mds.insert(id, price, Collections.emptyList());
+        return mds.insert(id, price, newDesc(rand));
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * JMH throughput benchmark for ConcurrentSkipList
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed workload on one set shared by every benchmark thread. Each operation
+ * is a contains with chance readPercent, otherwise an add or a remove of a
+ * random key. Keys are drawn from twice the size of the set, so about half
+ * are present and the size stays about the same.
+ *
+ * Change the number of threads with -t, e.g.
+ * java -jar target/benchmarks.jar ConcurrentSkipListBenchmark -t 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentSkipListBenchmark {
+    // Operations of the sets being compared
+    interface LongSet {
+        boolean add(Long x);
+
+        boolean remove(Long x);
+
+        boolean contains(Long x);
+    }
+
+    @Param({ "ConcurrentSkipList", "ConcurrentSkipListSet" })
+    String impl;
+
+    @Param({ "100000" })
+    int size;
+
+    @Param({ "90", "50" })
+    int readPercent;
+
+    LongSet set;
+
+    @Setup
+    public void setup() {
+        if (impl.equals("ConcurrentSkipList")) {
+            ConcurrentSkipList<Long> list = new ConcurrentSkipList<>();
+            set = new LongSet() {
+                public boolean add(Long x) {
+                    return list.add(x);
+                }
+
+                public boolean remove(Long x) {
+                    return list.remove(x) != null;
+                }
+
+                public boolean contains(Long x) {
+                    return list.contains(x);
+                }
+            };
+        } else {
+            ConcurrentSkipListSet<Long> jdk = new ConcurrentSkipListSet<>();
+            set = new LongSet() {
+                public boolean add(Long x) {
+                    return jdk.add(x);
+                }
+
+                public boolean remove(Long x) {
+                    return jdk.remove(x);
+                }
+
+                public boolean contains(Long x) {
+                    return jdk.contains(x);
+                }
+            };
+        }
+
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++)
+            set.add((long) rand.nextInt(2 * size));
+    }
+
+    @Benchmark
+    public boolean mixed() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        Long x = (long) rand.nextInt(2 * size);
+        int op = rand.nextInt(100);
+        if (op < readPercent)
+            return set.contains(x);
+        if ((op & 1) == 0)
+            return set.add(x);
+        return set.remove(x);
+    }
+}
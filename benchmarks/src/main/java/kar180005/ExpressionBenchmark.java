@@ -0,0 +1,104 @@
+/**
+ * JMH benchmarks for Expression
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import kar180005.Expression.Token;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    static final int BATCH_LINES = 1000; // Lines of input to batch
+
+    @Param({ "16", "1024" })
+    int operands; // Number of numbers in the expression
+
+    String line;
+    String batch; // BATCH_LINES copies of line
+    List<Token> infix, postfix;
+    Expression tree;
+    CompiledExpression compiled;
+
+    @Setup
+    public void setup() {
+        // Random expression with + - * / %, divisors are never 0
+        Random rand = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append(1 + rand.nextInt(99));
+        for (int i = 1; i < operands; i++) {
+            char op = "+-*/%+-*".charAt(rand.nextInt(8));
+            sb.append(' ').append(op).append(' ').append(1 + rand.nextInt(99));
+        }
+        line = sb.toString();
+        batch = (line + "\n").repeat(BATCH_LINES);
+
+        infix = ExpressionLexer.tokenize(line);
+        postfix = Expression.infixToPostfix(infix);
+        tree = Expression.infixToExpression(infix);
+        compiled = CompiledExpression.compile(tree);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return ExpressionLexer.tokenize(line);
+    }
+
+    // Tokenize and build the tree
+    @Benchmark
+    public Expression parse() {
+        return Expression.infixToExpression(ExpressionLexer.tokenize(line));
+    }
+
+    @Benchmark
+    public List<Token> infixToPostfix() {
+        return Expression.infixToPostfix(infix);
+    }
+
+    @Benchmark
+    public long evaluateExpression() {
+        return Expression.evaluateExpression(tree);
+    }
+
+    @Benchmark
+    public long evaluatePostfix() {
+        return Expression.evaluatePostfix(postfix);
+    }
+
+    @Benchmark
+    public long evaluateCompiled() {
+        return compiled.evaluate();
+    }
+
+    // ExpressionBatch on one thread, output is thrown away
+    @Benchmark
+    public Writer batch() throws IOException {
+        Writer out = Writer.nullWriter();
+        ExpressionBatch.process(new StringReader(batch), out, 1);
+        return out;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * JMH benchmarks for BFS and PERT
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+    static final int DEGREE = 4; // Average out degree
+
+    @Param({ "1000", "100000" })
+    int n; // Number of vertices
+
+    Graph graph; // Random directed graph
+    Graph dag; // Random directed acyclic graph, every edge goes from a lower to a higher vertex
+    int[] duration; // Durations of the vertices of dag
+    BFS bfs;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        int m = DEGREE * n;
+
+        graph = new Graph(n, true);
+        for (int i = 1; i <= m; i++) {
+            int u = 1 + rand.nextInt(n);
+            int v = 1 + rand.nextInt(n);
+            graph.addEdge(graph.getVertex(u), graph.getVertex(v), 1, i);
+        }
+
+        dag = new Graph(n, true);
+        for (int i = 1; i <= m; i++) {
+            int u = 1 + rand.nextInt(n - 1);
+            int v = u + 1 + rand.nextInt(n - u);
+            dag.addEdge(dag.getVertex(u), dag.getVertex(v), 1, i);
+        }
+        duration = new int[n];
+        for (int i = 0; i < n; i++)
+            duration[i] = rand.nextInt(10);
+
+        bfs = new BFS(graph);
+    }
+
+    // BFS from vertex 1, reusing the vertex storage
+    @Benchmark
+    public BFS bfs() {
+        bfs.bfs(graph.getVertex(1));
+        return bfs;
+    }
+
+    // Create a BFS instance and run it from vertex 1
+    @Benchmark
+    public BFS breadthFirstSearch() {
+        return BFS.breadthFirstSearch(graph, 1);
+    }
+
+    @Benchmark
+    public PERT pert() {
+        return PERT.pert(dag, duration);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * JMH benchmarks for MDS
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MDSBenchmark {
+    static final int QUERIES = 1 << 12; // Number of precomputed queries, a power of 2
+    static final int DESC_LENGTH = 5; // Description values per product
+    static final int MAX_PRICE = 10000;
+
+    @Param({ "1000", "100000" })
+    int size; // Number of products, ids are 1..size
+
+    MDS mds;
+    int names; // Description values are 1..names, so each is shared by about size * DESC_LENGTH / names products
+    List<List<Integer>> descs; // descs.get(id) is the description of id
+    int[] ids, prices, values;
+    int q; // Next query
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        names = Math.max(10, size / 100);
+        mds = new MDS();
+        descs = new ArrayList<>(Collections.nCopies(size + 1, null));
+        for (int id = 1; id <= size; id++) {
+            List<Integer> desc = new ArrayList<>(DESC_LENGTH);
+            for (int j = 0; j < DESC_LENGTH; j++)
+                desc.add(1 + rand.nextInt(names));
+            descs.set(id, desc);
+            mds.insert(id, 1 + rand.nextInt(MAX_PRICE), desc);
+        }
+
+        ids = new int[QUERIES];
+        prices = new int[QUERIES];
+        values = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            ids[i] = 1 + rand.nextInt(size);
+            prices[i] = 1 + rand.nextInt(MAX_PRICE);
+            // A value in the description of a product, so it has at least one id
+            values[i] = descs.get(1 + rand.nextInt(size)).get(0);
+        }
+    }
+
+    private int next() {
+        q = (q + 1) & (QUERIES - 1);
+        return q;
+    }
+
+    // Insert a new price and the same description for an existing id
+    @Benchmark
+    public int insertUpdate() {
+        int i = next();
+        return mds.insert(ids[i], prices[i], descs.get(ids[i]));
+    }
+
+    // Insert a new price with an empty description, which only updates the price
+    @Benchmark
+    public int insertPriceOnly() {
+        int i = next();
+        return mds.insert(ids[i], prices[i], Collections.emptyList());
+    }
+
+    @Benchmark
+    public int find() {
+        return mds.find(ids[next()]);
+    }
+
+    // Delete an id then insert it back so the size stays the same
+    @Benchmark
+    public int deleteThenInsert() {
+        int i = next();
+        int id = ids[i];
+        int sum = mds.delete(id);
+        mds.insert(id, prices[i], descs.get(id));
+        return sum;
+    }
+
+    @Benchmark
+    public int findMinPrice() {
+        return mds.findMinPrice(values[next()]);
+    }
+
+    @Benchmark
+    public int findMaxPrice() {
+        return mds.findMaxPrice(values[next()]);
+    }
+
+    @Benchmark
+    public int findPriceRange() {
+        int i = next();
+        int low = prices[i] / 2;
+        return mds.findPriceRange(values[i], low, low + MAX_PRICE / 4);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * JMH benchmark for MDS.removeNames on large descriptions
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * removeNames shrinks the description it works on, so the MDS is rebuilt
+ * before each iteration and an iteration is one batch of BATCH calls. The
+ * score is the time of the whole batch. Each call removes two values that
+ * are in the description and asks for two that are not, so the cost should
+ * not grow with descLength.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = MDSRemoveNamesBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = MDSRemoveNamesBenchmark.BATCH)
+@Fork(1)
+public class MDSRemoveNamesBenchmark {
+    static final int BATCH = 2000; // Calls per iteration
+    static final int SIZE = 1000; // Number of products, ids are 1..SIZE
+    static final int NAMES = 1 << 20; // Description values are 1..NAMES
+    static final int MAX_PRICE = 10000;
+
+    @Param({ "10", "1000" })
+    int descLength; // Values per description
+
+    MDS mds;
+    List<List<Integer>> calls; // The list of each call, in order
+    int q; // Next call
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Random rand = new Random(42);
+        mds = new MDS();
+        List<List<Integer>> descs = new ArrayList<>(SIZE);
+        for (int id = 1; id <= SIZE; id++) {
+            List<Integer> desc = new ArrayList<>(descLength);
+            // Odd values only, so even values are never in a description
+            for (int j = 0; j < descLength; j++)
+                desc.add(1 + 2 * rand.nextInt(NAMES / 2));
+            descs.add(desc);
+            mds.insert(id, 1 + rand.nextInt(MAX_PRICE), desc);
+        }
+
+        // Call c is on id 1 + c % SIZE and removes the next two values of its description
+        calls = new ArrayList<>(BATCH);
+        for (int c = 0; c < BATCH; c++) {
+            List<Integer> desc = descs.get(c % SIZE);
+            int first = 2 * (c / SIZE);
+            List<Integer> list = new ArrayList<>(4);
+            list.add(desc.get(first));
+            list.add(2 * rand.nextInt(NAMES / 2));
+            list.add(desc.get(first + 1));
+            list.add(2 * rand.nextInt(NAMES / 2));
+            calls.add(list);
+        }
+        q = 0;
+    }
+
+    @Benchmark
+    public int removeNames() {
+        int c = q++;
+        return mds.removeNames(1 + c % SIZE, calls.get(c));
+    }
+}
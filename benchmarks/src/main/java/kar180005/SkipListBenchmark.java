@@ -0,0 +1,114 @@
+/**
+ * JMH benchmarks for SkipList
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipListBenchmark {
+    static final int QUERIES = 1 << 12; // Number of precomputed query keys, a power of 2
+
+    @Param({ "1000", "100000" })
+    int size;
+
+    SkipList<Long> list;
+    // The list holds the even numbers 0, 2, ..., 2 * (size - 1)
+    Long[] present; // Keys in the list
+    Long[] absent; // Keys not in the list, between keys that are
+    int[] indexes; // Positions in the list
+    int q; // Next query
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        List<Long> keys = new ArrayList<>(size);
+        for (long i = 0; i < size; i++)
+            keys.add(2 * i);
+        Collections.shuffle(keys, rand);
+
+        list = new SkipList<>();
+        for (Long k : keys)
+            list.add(k);
+
+        present = new Long[QUERIES];
+        absent = new Long[QUERIES];
+        indexes = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long k = rand.nextInt(size);
+            present[i] = 2 * k;
+            // Stay below the last key so floor and ceiling always find one
+            absent[i] = 2 * Math.min(k, size - 2) + 1;
+            indexes[i] = rand.nextInt(size);
+        }
+    }
+
+    private int next() {
+        q = (q + 1) & (QUERIES - 1);
+        return q;
+    }
+
+    // Add a new key then remove it so the size stays the same
+    @Benchmark
+    public Long addThenRemove() {
+        Long x = absent[next()];
+        list.add(x);
+        return list.remove(x);
+    }
+
+    // Remove a key then add it back so the size stays the same
+    @Benchmark
+    public boolean removeThenAdd() {
+        Long x = present[next()];
+        list.remove(x);
+        return list.add(x);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return list.contains(present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() {
+        return list.contains(absent[next()]);
+    }
+
+    @Benchmark
+    public Long get() {
+        return list.get(indexes[next()]);
+    }
+
+    @Benchmark
+    public Long floor() {
+        return list.floor(absent[next()]);
+    }
+
+    @Benchmark
+    public Long ceiling() {
+        return list.ceiling(absent[next()]);
+    }
+}
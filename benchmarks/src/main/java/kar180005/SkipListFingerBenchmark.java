@@ -0,0 +1,93 @@
+/**
+ * JMH benchmarks for finger search in SkipList
+ * @author Kevin Roa
+ */
+
+package kar180005;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Searches with and without finger search on access patterns with and
+ * without locality. sequential visits the keys in order, nearSequential
+ * moves a few positions forward or back from the previous key, random has no
+ * locality and shows the cost of finger search when it does not help.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipListFingerBenchmark {
+    static final int QUERIES = 1 << 16; // Number of precomputed query keys, a power of 2
+
+    @Param({ "100000" })
+    int size;
+
+    @Param({ "false", "true" })
+    boolean finger;
+
+    @Param({ "sequential", "nearSequential", "random" })
+    String pattern;
+
+    SkipList<Long> list;
+    // The list holds the even numbers 0, 2, ..., 2 * (size - 1)
+    Long[] present; // Keys in the list, in the order of the pattern
+    Long[] absent; // Keys not in the list, next to the keys in present
+    int q; // Next query
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        list = new SkipList<>();
+        for (long i = 0; i < size; i++)
+            list.add(2 * i);
+        list.setFingerSearch(finger);
+
+        present = new Long[QUERIES];
+        absent = new Long[QUERIES];
+        long k = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (pattern.equals("sequential"))
+                k = (k + 1) % (size - 1);
+            else if (pattern.equals("nearSequential"))
+                k = Math.floorMod(k + rand.nextInt(9) - 2, size - 1);
+            else
+                k = rand.nextInt(size - 1);
+            present[i] = 2 * k;
+            absent[i] = 2 * k + 1;
+        }
+    }
+
+    private int next() {
+        q = (q + 1) & (QUERIES - 1);
+        return q;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return list.contains(present[next()]);
+    }
+
+    // Add a new key then remove it so the size stays the same
+    @Benchmark
+    public Long addThenRemove() {
+        Long x = absent[next()];
+        list.add(x);
+        return list.remove(x);
+    }
+}